@@ -1,31 +1,63 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * The nodes which make up the Binary Search Tree.
+ * Each node also keeps the number of nodes in its subtree (so the tree can find the k-th
+ * element without a full traversal), and a balanced tree keeps the height of the subtree too.
  * @author Andrew
  *
  * @param <T>
  */
 public class BSTNode<T> {
 	
+	//Subtrees bigger than this are worth splitting between threads
+	private static final int PARALLEL_THRESHOLD = 4096;
+	
 	private T element;
 	private BSTNode<T> left;
 	private BSTNode<T> right;
-
+	private int height;
+	private int size;
+	
 	public BSTNode(T element) {
 		this.element = element;
 		left = null;
 		right = null;
+		height = 1;
+		size = 1;
 	}
 
 	public T getElement() {
 		return element;
 	}
 
+	public void setElement(T element) {
+		this.element = element;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setHeight(int height) {
+		this.height = height;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
 	public BSTNode<T> getLeft() {
 		return left;
 	}
 
 	public void setLeft(BSTNode<T> bstNode) {
-		left = bstNode;		
+		left = bstNode;
 	}
 
 	public BSTNode<T> getRight() {
@@ -33,30 +65,117 @@ public class BSTNode<T> {
 	}
 
 	public void setRight(BSTNode<T> bstNode) {
-		right = bstNode;		
+		right = bstNode;
 	}
 
+	/*
+	 * Returns the number of levels in the subtree starting at this node. Small subtrees are walked
+	 * with a stack on this thread, big ones are shared out between the threads of the common
+	 * fork/join pool. Neither recurses down the tree, so a long chain of nodes can't overflow the stack.
+	 */
 	public int computeDepth() {
 		
-		//Compute depth of left subtree
-		int leftDepth = 0;
-		if(left != null) {
-			leftDepth = left.computeDepth();
+		if(size <= PARALLEL_THRESHOLD) {
+			return sequentialDepth(this);
 		}
 		
-		//Compute depth of right subtree
-		int rightDepth = 0;
-		if(right != null) {
-			rightDepth = right.computeDepth();
+		return ForkJoinPool.commonPool().invoke(new DepthTask(this));
+		
+	}
+
+	/*
+	 * Depth first walk which keeps each node's level on a second stack.
+	 */
+	private static int sequentialDepth(BSTNode<?> node) {
+		
+		MyStack<BSTNode<?>> toVisit = new MyStack<BSTNode<?>>();
+		MyIntStack levels = new MyIntStack();
+		int depth = 0;
+		
+		toVisit.push(node);
+		levels.push(1);
+		
+		while(toVisit.hasNext()) {
+			
+			BSTNode<?> current = toVisit.pop();
+			int level = levels.pop();
+			depth = Math.max(depth, level);
+			
+			if(current.left != null) {
+				toVisit.push(current.left);
+				levels.push(level + 1);
+			}
+			
+			if(current.right != null) {
+				toVisit.push(current.right);
+				levels.push(level + 1);
+			}
+			
 		}
 		
-		int maxDepth = leftDepth;
-		if(rightDepth > leftDepth) {
-			maxDepth = rightDepth;
+		return depth;
+		
+	}
+
+	/*
+	 * Works out the depth of a big subtree. It follows the larger child down itself and forks a
+	 * task for the smaller child at each step, so every forked task is at most half the size of
+	 * the one that forked it. Once the subtree left is small it finishes it off sequentially.
+	 */
+	private static final class DepthTask extends RecursiveTask<Integer> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final BSTNode<?> node;
+		
+		DepthTask(BSTNode<?> node) {
+			this.node = node;
 		}
 		
-		//Return max subtree depth + 1 for current level.
-		return maxDepth + 1;
+		protected Integer compute() {
+			
+			MyStack<DepthTask> forked = new MyStack<DepthTask>();
+			MyIntStack forkedLevels = new MyIntStack();
+			BSTNode<?> current = node;
+			
+			//The number of nodes above current
+			int level = 0;
+			int depth = 0;
+			
+			while(true) {
+				
+				if(current.size <= PARALLEL_THRESHOLD) {
+					depth = level + sequentialDepth(current);
+					break;
+				}
+				
+				BSTNode<?> smaller = current.left;
+				BSTNode<?> larger = current.right;
+				if(smaller != null && (larger == null || smaller.size > larger.size)) {
+					smaller = current.right;
+					larger = current.left;
+				}
+				
+				level++;
+				
+				if(smaller != null) {
+					DepthTask task = new DepthTask(smaller);
+					task.fork();
+					forked.push(task);
+					forkedLevels.push(level);
+				}
+				
+				current = larger;
+				
+			}
+			
+			while(forked.hasNext()) {
+				depth = Math.max(depth, forkedLevels.pop() + forked.pop().join());
+			}
+			
+			return depth;
+			
+		}
 		
 	}
 
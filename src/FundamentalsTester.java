@@ -1,3 +1,18 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 /**
  * A collection of fundamental CS data structures and algorithms that I have
  * built from scratch to practice.
@@ -24,13 +39,24 @@ public class FundamentalsTester {
 	public static void main(String[] args) {
 		
 		testLinkedList();
+		testUnrolledLinkedList();
+		testIndexedSkipList();
 		testStacksAndQueues();
+		testConcurrentQueuesAndStacks();
 		testBinaryTree();
+		testConcurrentSkipList();
+		testBPlusTree();
 		testHashTable();
+		testOpenHashTable();
+		testPrimitiveHashTables();
+		testConcurrentHashTable();
+		testCache();
+		testMappedHashTable();
+		testDiskBPlusTree();
 		testHeap();
 		
 	}
-	
+
 	private static void testHeap() {
 		
 		boolean showHeaps = true;
@@ -135,10 +161,478 @@ public class FundamentalsTester {
 		//Print the hashtable
 		if(seeResults) { testHashTable.printTable(); }
 		
+		//Walk the table in place in a few different ways
+		final int[] total = new int[1];
+		testHashTable.forEach((key, value) -> total[0] += value);
+		assert total[0] == 26 + 1 + 24;
+		
+		int keyCount = 0;
+		Iterator<String> keyIterator = testHashTable.keyIterator();
+		while(keyIterator.hasNext()) {
+			assert testHashTable.contains(keyIterator.next());
+			keyCount++;
+		}
+		assert keyCount == testHashTable.size();
+		
+		MyHashTable<String, Integer>.EntryCursor cursor = testHashTable.cursor();
+		while(cursor.next()) {
+			assert testHashTable.get(cursor.getKey()) == cursor.getValue();
+		}
+		
+		//Changing the table part way through a walk is detected
+		try {
+			Iterator<Integer> valueIterator = testHashTable.valueIterator();
+			valueIterator.next();
+			testHashTable.add("Rusty", 3);
+			valueIterator.next();
+			assert false; //Shouldn't reach this line
+		} catch (ConcurrentModificationException e) {
+		}
+		
+		//Grow a tiny table far past its starting size, including negative hash codes
+		MyHashTable<Integer, Integer> growingTable = new MyHashTable<Integer, Integer>(2);
+		boolean sawRehashing = false;
+		for(int i = -1000; i < 1000; i++) {
+			growingTable.add(i, i * 2);
+			sawRehashing = sawRehashing || growingTable.isRehashing();
+			assert growingTable.get(i) == i * 2;
+		}
+		assert sawRehashing;
+		assert growingTable.size() == 2000;
+		
+		//Every key is still reachable whichever array it is in
+		for(int i = -1000; i < 1000; i += 2) {
+			growingTable.remove(i);
+		}
+		assert growingTable.size() == 1000;
+		assert growingTable.getKeys().getLength() == 1000;
+		for(int i = -1000; i < 1000; i++) {
+			assert growingTable.contains(i) == (i % 2 != 0);
+		}
+		
+		//Strings which all have the same hash code land in one bucket, which becomes a tree
+		MyHashTable<String, Integer> collidingTable = new MyHashTable<String, Integer>(1000);
+		String[] colliding = new String[64];
+		for(int i = 0; i < colliding.length; i++) {
+			
+			//"Aa" and "BB" have the same hash code, so any mix of them collides too
+			String key = "";
+			for(int bit = 0; bit < 6; bit++) {
+				key += ((i >> bit) & 1) == 0 ? "Aa" : "BB";
+			}
+			colliding[i] = key;
+			collidingTable.add(key, i);
+			
+		}
+		assert collidingTable.size() == 64;
+		for(int i = 0; i < colliding.length; i++) {
+			assert collidingTable.get(colliding[i]) == i;
+		}
+		assert collidingTable.getKeys().getLength() == 64;
+		
+		//Shrink it back down to a list
+		for(int i = 0; i < 60; i++) {
+			collidingTable.remove(colliding[i]);
+		}
+		assert collidingTable.size() == 4;
+		assert !collidingTable.contains(colliding[0]);
+		assert collidingTable.get(colliding[63]) == 63;
+		
 		System.out.println("Hash table tests passed.");
 		
 	}
 
+	private static void testOpenHashTable() {
+		
+		//Start small so the table has to resize a few times
+		MyOpenHashTable<String, Integer> testHashTable = new MyOpenHashTable<String, Integer>(2);
+		testHashTable.add("Andrew", 26);
+		testHashTable.add("Ewan", 21);
+		testHashTable.add("Rusty", 3);
+		testHashTable.add("Alastair", 24);
+		assert testHashTable.size() == 4;
+		assert testHashTable.getKeys().getLength() == 4;
+		
+		MyLinkedList<Integer> elements = testHashTable.getValues();
+		int sum = 0;
+		while(elements.getLength() > 0) {
+			sum += elements.delete();
+		}
+		assert sum == 74;
+		
+		//Remove and replace
+		testHashTable.remove("Rusty");
+		assert !testHashTable.contains("Rusty");
+		assert testHashTable.get("Ewan") == 21;
+		assert testHashTable.get("Dr Who") == null;
+		testHashTable.add("Ewan", 1);
+		assert testHashTable.get("Ewan") == 1;
+		assert testHashTable.size() == 3;
+		
+		//Lots of colliding inserts and removes to exercise probing and backward shifting
+		MyOpenHashTable<Integer, Integer> bigTable = new MyOpenHashTable<Integer, Integer>();
+		for(int i = -500; i < 500; i++) {
+			bigTable.add(i * 64, i);
+		}
+		for(int i = -500; i < 500; i += 2) {
+			bigTable.remove(i * 64);
+		}
+		assert bigTable.size() == 500;
+		for(int i = -500; i < 500; i++) {
+			assert bigTable.contains(i * 64) == (i % 2 != 0);
+		}
+		
+		System.out.println("Open hash table tests passed.");
+		
+	}
+
+	private static void testPrimitiveHashTables() {
+		
+		//Count how many of -1000..999 share each remainder mod 10, which gives negative and zero keys
+		MyIntIntHashTable counts = new MyIntIntHashTable();
+		for(int i = -1000; i < 1000; i++) {
+			counts.increment(i % 10, 1);
+		}
+		assert counts.size() == 19;
+		assert counts.get(0, -1) == 200;
+		assert counts.get(-3, -1) == 100;
+		assert counts.get(3, -1) == 100;
+		assert counts.get(42, -1) == -1;
+		
+		counts.remove(0);
+		counts.remove(-3);
+		assert !counts.contains(0);
+		assert !counts.contains(-3);
+		assert counts.contains(-4);
+		assert counts.size() == 17;
+		
+		int sum = 0;
+		for(int value: counts.getValues()) {
+			sum += value;
+		}
+		assert sum == 1700;
+		
+		//Long keys with object values
+		MyLongObjectHashTable<String> names = new MyLongObjectHashTable<String>(2);
+		for(long i = 0; i < 100; i++) {
+			names.add(i << 40, "n" + i);
+		}
+		assert names.size() == 100;
+		assert names.get(0).equals("n0");
+		assert names.get(7L << 40).equals("n7");
+		assert names.get(7) == null;
+		for(long i = 0; i < 100; i += 2) {
+			names.remove(i << 40);
+		}
+		assert names.size() == 50;
+		assert names.getKeys().length == 50;
+		assert names.get(9L << 40).equals("n9");
+		
+		System.out.println("Primitive hash table tests passed.");
+		
+	}
+
+	private static void testConcurrentHashTable() {
+		
+		final MyConcurrentHashTable<Integer, Integer> table = new MyConcurrentHashTable<Integer, Integer>(4, 4);
+		
+		//Several threads add overlapping ranges of keys at the same time
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++) {
+			final int offset = t * 500;
+			threads[t] = new Thread(() -> {
+				for(int i = offset; i < offset + 1000; i++) {
+					table.putIfAbsent(i, i);
+					table.computeIfAbsent(-i - 1, k -> -k);
+				}
+			});
+			threads[t].start();
+		}
+		
+		for(Thread thread: threads) {
+			joinQuietly(thread);
+		}
+		
+		//Keys 0 to 2499 and -1 to -2500 should each be there exactly once
+		assert table.size() == 5000;
+		assert table.getKeys().getLength() == 5000;
+		assert table.get(2499) == 2499;
+		assert table.get(-2500) == 2500;
+		assert table.get(2500) == null;
+		
+		//Single threaded behaviour matches MyHashTable
+		assert table.putIfAbsent(7, 100) == 7;
+		table.add(7, 100);
+		assert table.get(7) == 100;
+		table.remove(7);
+		assert !table.contains(7);
+		assert table.size() == 4999;
+		
+		System.out.println("Concurrent hash table tests passed.");
+		
+	}
+
+	private static void testCache() {
+		
+		//Least recently used cache of 3 pairs
+		MyCache<String, Integer> lru = new MyCache<String, Integer>(3);
+		lru.add("a", 1);
+		lru.add("b", 2);
+		lru.add("c", 3);
+		assert lru.get("a") == 1; //a is now the most recently used
+		lru.add("d", 4); //Evicts b
+		assert !lru.contains("b");
+		assert lru.getKeys().toString().equals("d, a, c");
+		assert lru.get("b") == null;
+		assert lru.getHitCount() == 1;
+		assert lru.getMissCount() == 1;
+		assert lru.getEvictionCount() == 1;
+		lru.remove("a");
+		assert lru.size() == 2;
+		
+		//Weight bounded cache where each string weighs its length
+		MyCache<Integer, String> weighted = new MyCache<Integer, String>(10, (k, v) -> v.length(), false);
+		weighted.add(1, "aaaa");
+		weighted.add(2, "bbbb");
+		weighted.add(3, "cccc"); //Evicts 1
+		assert !weighted.contains(1);
+		assert weighted.getWeight() == 8;
+		weighted.add(4, "this is far too long"); //Never stored
+		assert !weighted.contains(4);
+		assert weighted.size() == 2;
+		
+		//With frequency admission a popular key survives a scan of one off keys
+		MyCache<Integer, Integer> tinyLfu = new MyCache<Integer, Integer>(2, (k, v) -> 1, true);
+		tinyLfu.add(1, 1);
+		tinyLfu.add(2, 2);
+		for(int i = 0; i < 5; i++) {
+			tinyLfu.get(1);
+			tinyLfu.get(2);
+		}
+		for(int i = 100; i < 200; i++) {
+			tinyLfu.add(i, i);
+		}
+		assert tinyLfu.contains(1);
+		assert tinyLfu.contains(2);
+		assert tinyLfu.size() == 2;
+		
+		//A heavy new pair which loses to a hot pair doesn't push out the cold pairs before it first
+		MyCache<Integer, Integer> weightedLfu = new MyCache<Integer, Integer>(3, (k, v) -> v, true);
+		weightedLfu.add(1, 1);
+		weightedLfu.add(2, 1);
+		weightedLfu.add(3, 1);
+		for(int i = 0; i < 5; i++) {
+			weightedLfu.get(3);
+		}
+		weightedLfu.get(9);
+		weightedLfu.get(9);
+		weightedLfu.add(9, 3); //Would need 1, 2 and 3 to go, but 3 is used more
+		assert !weightedLfu.contains(9);
+		assert weightedLfu.contains(1) && weightedLfu.contains(2) && weightedLfu.contains(3);
+		assert weightedLfu.getEvictionCount() == 1;
+		
+		//One which beats every pair it needs out is let in
+		for(int i = 0; i < 3; i++) {
+			weightedLfu.get(8);
+		}
+		weightedLfu.add(8, 2); //Pushes out 1 and 2
+		assert weightedLfu.contains(8) && weightedLfu.contains(3);
+		assert !weightedLfu.contains(1) && !weightedLfu.contains(2);
+		assert weightedLfu.getWeight() == 3;
+		
+		System.out.println("Cache tests passed.");
+		
+	}
+
+	private static void testMappedHashTable() {
+		
+		try {
+			
+			Path file = Files.createTempFile("mapped-hash-table", ".bin");
+			Files.delete(file);
+			
+			//Build a small table in a new file
+			MyMappedHashTable<String, Integer> table = new MyMappedHashTable<String, Integer>(file, 4, MySerializer.STRING, MySerializer.INTEGER);
+			table.add("Andrew", 26);
+			table.add("Ewan", 21);
+			table.add("Rusty", 3);
+			table.add("Alastair", 24);
+			table.remove("Rusty");
+			table.add("Ewan", 1);
+			for(int i = 0; i < 1000; i++) {
+				table.add("key" + i, i);
+			}
+			table.close();
+			
+			//Open it again and everything should still be there
+			MyMappedHashTable<String, Integer> reopened = new MyMappedHashTable<String, Integer>(file, 4, MySerializer.STRING, MySerializer.INTEGER);
+			assert reopened.size() == 1003;
+			assert reopened.get("Andrew") == 26;
+			assert reopened.get("Ewan") == 1;
+			assert !reopened.contains("Rusty");
+			assert reopened.get("key999") == 999;
+			assert reopened.get("Dr Who") == null;
+			assert reopened.getKeys().getLength() == 1003;
+			
+			//It started with 4 buckets and doubled as it filled, and opens again at its grown size
+			assert reopened.getBucketCount() == 1024;
+			
+			//Removed entries are left behind as dead space, which gets packed away
+			long grownSize = Files.size(file);
+			for(int i = 0; i < 20000; i++) {
+				reopened.add("key" + (i % 100), i);
+				reopened.add("Andrew" + (i % 2 == 0 ? "" : "!"), i);
+				reopened.remove("Andrew!");
+			}
+			//Without packing the dead entries alone would take up about 700KB
+			assert Files.size(file) <= grownSize * 4;
+			assert reopened.size() == 1003 && reopened.get("key99") == 19999;
+			reopened.close();
+			
+			reopened = new MyMappedHashTable<String, Integer>(file, 4, MySerializer.STRING, MySerializer.INTEGER);
+			assert reopened.size() == 1003 && reopened.getBucketCount() == 1024;
+			assert reopened.get("Andrew") == 19998 && !reopened.contains("Andrew!");
+			assert reopened.get("key500") == 500 && reopened.get("Ewan") == 1;
+			reopened.close();
+			
+			Files.delete(file);
+			
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Mapped hash table tests passed.");
+		
+	}
+
+	private static void testDiskBPlusTree() {
+		
+		try {
+			
+			Path file = Files.createTempFile("disk-b-plus-tree", ".bin");
+			Path log = file.resolveSibling(file.getFileName() + ".wal");
+			Files.delete(file);
+			
+			//Enough keys for a few levels, through a pool much smaller than the tree
+			MyDiskBPlusTree tree = new MyDiskBPlusTree(file, 8);
+			for(long i = 0; i < 20000; i++) {
+				tree.put((i * 7919) % 20000, i);
+			}
+			assert tree.size() == 20000;
+			assert tree.get(7919, -1) == 1;
+			assert tree.get(20000, -1) == -1;
+			tree.put(5, 500);
+			assert tree.get(5, -1) == 500;
+			assert tree.size() == 20000;
+			
+			//Remove the odd keys
+			for(long i = 1; i < 20000; i += 2) {
+				assert tree.remove(i);
+			}
+			assert !tree.remove(1);
+			assert tree.size() == 10000;
+			assert !tree.contains(99);
+			assert tree.contains(98);
+			
+			//A range cursor walks the keys in order, skipping the ones removed
+			MyDiskBPlusTree.Cursor cursor = tree.cursor(101, 120);
+			long expected = 102;
+			while(cursor.next()) {
+				assert cursor.getKey() == expected;
+				expected += 2;
+			}
+			assert expected == 122;
+			assert !tree.cursor(20001, 30000).next();
+			tree.close();
+			
+			//Open it again and everything should still be there
+			tree = new MyDiskBPlusTree(file, 16);
+			assert tree.size() == 10000;
+			assert tree.get(5, -1) == -1;
+			long count = 0;
+			cursor = tree.cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+			while(cursor.next()) {
+				assert cursor.getKey() == count * 2;
+				count++;
+			}
+			assert count == 10000;
+			
+			//Changes made without closing are only in the log, and are redone when it is opened again
+			tree.put(-1, 42);
+			tree.remove(0);
+			tree.flush();
+			tree.put(-2, 43);
+			tree.remove(2);
+			
+			tree.crash(false, false);
+			
+			//Half a record left at the end of the log by the crash is ignored
+			Files.write(log, new byte[] { 1, 2, 3 }, StandardOpenOption.APPEND);
+			
+			tree = new MyDiskBPlusTree(file, 8);
+			assert tree.size() == 10000;
+			assert tree.get(-1, -1) == 42;
+			assert tree.get(-2, -1) == 43;
+			assert !tree.contains(0);
+			assert !tree.contains(2);
+			assert tree.contains(4);
+			assert Files.size(log) == 0;
+			
+			//A crash after a checkpoint's page images and marker are in the log, but before any of them
+			//reached the file. The operations before the images are skipped, so only copying the
+			//images back into the file can bring these changes back
+			tree.put(-3, 44);
+			tree.remove(4);
+			tree.crash(true, true);
+			tree = new MyDiskBPlusTree(file, 8);
+			assert tree.size() == 10000;
+			assert tree.get(-3, -1) == 44 && tree.get(-1, -1) == 42;
+			assert !tree.contains(4) && tree.contains(6);
+			
+			//Without the marker the images might be incomplete, so they are ignored and the operations redone
+			tree.put(-4, 45);
+			tree.remove(6);
+			tree.crash(true, false);
+			tree = new MyDiskBPlusTree(file, 8);
+			assert tree.size() == 10000;
+			assert tree.get(-4, -1) == 45 && tree.get(-3, -1) == 44;
+			assert !tree.contains(6) && tree.contains(8);
+			
+			//Recovery finishes with a checkpoint of its own. If that stops before its marker, the
+			//operations being redone must still be in the log for the next try
+			for(long key = -10; key > -20; key--) {
+				tree.put(key, key);
+			}
+			tree.crash(false, false);
+			tree = new MyDiskBPlusTree(file, 8, false);
+			assert tree.get(-15, -1) == -15;
+			tree.crash(true, false);
+			tree = new MyDiskBPlusTree(file, 8, false);
+			assert tree.size() == 10010 && tree.get(-19, -1) == -19;
+			
+			//This time the images and marker reach the log after the unfinished ones, and the crash
+			//comes once pages have started going into the file (here the header is wiped)
+			tree.crash(true, true);
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(MyDiskBPlusTree.PAGE_SIZE), 0);
+			}
+			tree = new MyDiskBPlusTree(file, 8);
+			assert tree.size() == 10010 && tree.get(-10, -1) == -10;
+			assert tree.get(-4, -1) == 45 && tree.contains(8);
+			assert Files.size(log) == 0;
+			tree.close();
+			
+			Files.delete(file);
+			Files.delete(log);
+			
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		System.out.println("Disk B+ tree tests passed.");
+		
+	}
+
 	private static void testBinaryTree() {
 		
 		//Set this to true if you want to pretty print the trees.
@@ -165,6 +659,17 @@ public class FundamentalsTester {
 		assert testTree.toStringPostOrder().equals("1, 4, 7, 6, 3, 13, 14, 10, 8"); //LRN, stack
 		assert testTree.toStringBFOrder().equals("8, 3, 10, 1, 6, 14, 4, 7, 13"); //Queue
 		
+		//The write methods stream the same text to any Appendable
+		StringBuilder treeOut = new StringBuilder();
+		try {
+			testTree.writeInOrder(treeOut);
+			treeOut.append(" | ");
+			testTree.writeBFOrder(treeOut);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		assert treeOut.toString().equals("1, 3, 4, 6, 7, 8, 10, 13, 14 | 8, 3, 10, 1, 6, 14, 4, 7, 13");
+		
 		//Check if an item is in the tree
 		assert testTree.contains(10);
 		assert !testTree.contains(100);
@@ -191,10 +696,310 @@ public class FundamentalsTester {
 		//Pretty print the tree
 		if(viewTrees) { testTree.prettyPrint(); }
 		
+		//Removing a right child whose parent has no left child
+		MyBinarySearchTree<Integer> chain = new MyBinarySearchTree<Integer>();
+		chain.insert(1);
+		chain.insert(2);
+		chain.insert(3);
+		chain.remove(2);
+		assert chain.toStringInOrder().equals("1, 3");
+		
+		//Sorted input makes a plain tree as tall as it is long, but a balanced tree stays short
+		MyBinarySearchTree<Integer> sortedTree = new MyBinarySearchTree<Integer>();
+		MyBinarySearchTree<Integer> balancedTree = new MyBinarySearchTree<Integer>(true);
+		for(int i = 1; i <= 1000; i++) {
+			sortedTree.insert(i);
+			balancedTree.insert(i);
+		}
+		assert sortedTree.getHeight() == 1000;
+		assert balancedTree.getHeight() <= 14; //1.44 log2(1000)
+		
+		for(int i = 1; i <= 100000; i++) {
+			balancedTree.insert(i);
+		}
+		assert balancedTree.getHeight() <= 24; //1.44 log2(100000)
+		
+		//Remove everything but the multiples of ten, odds from the left and evens from the right
+		for(int i = 1; i <= 100000; i += 2) {
+			balancedTree.remove(i);
+		}
+		for(int i = 100000; i > 0; i -= 2) {
+			if(i % 10 != 0) {
+				balancedTree.remove(i);
+			}
+		}
+		assert balancedTree.getHeight() <= 20; //1.44 log2(10000)
+		assert balancedTree.contains(50000) && !balancedTree.contains(50001) && !balancedTree.contains(49999);
+		assert balancedTree.toStringInOrder().startsWith("10, 20, 30, ");
+		
+		MyBinarySearchTree<Integer> smallBalanced = new MyBinarySearchTree<Integer>(true);
+		for(int i = 1; i <= 7; i++) {
+			smallBalanced.insert(i);
+		}
+		assert smallBalanced.toStringBFOrder().equals("4, 2, 6, 1, 3, 5, 7");
+		smallBalanced.remove(4);
+		smallBalanced.remove(5);
+		smallBalanced.remove(6);
+		assert smallBalanced.toStringInOrder().equals("1, 2, 3, 7");
+		assert smallBalanced.getHeight() == 3;
+		if(viewTrees) { smallBalanced.prettyPrint(); }
+		
+		//Order statistics on a plain tree, the same tree again after a remove, and a balanced one
+		MyBinarySearchTree<Integer> statsTree = new MyBinarySearchTree<Integer>();
+		for(int element: new int[] { 8, 3, 10, 1, 6, 14, 4, 7, 13, 6 }) {
+			statsTree.insert(element);
+		}
+		assert statsTree.size() == 9;
+		assert statsTree.select(0) == 1 && statsTree.select(4) == 7 && statsTree.select(8) == 14;
+		assert statsTree.rank(1) == 0 && statsTree.rank(8) == 5 && statsTree.rank(9) == 6 && statsTree.rank(100) == 9;
+		assert statsTree.floor(9) == 8 && statsTree.floor(0) == null && statsTree.floor(6) == 6;
+		assert statsTree.ceiling(9) == 10 && statsTree.ceiling(15) == null && statsTree.ceiling(-1) == 1;
+		assert statsTree.rangeCount(4, 10) == 5 && statsTree.rangeCount(5, 5) == 0 && statsTree.rangeCount(10, 4) == 0;
+		
+		statsTree.remove(3);
+		statsTree.remove(100);
+		assert statsTree.size() == 8;
+		assert statsTree.select(1) == 4 && statsTree.rank(8) == 4;
+		
+		StringBuilder range = new StringBuilder();
+		Iterator<Integer> rangeIterator = statsTree.rangeIterator(5, 13);
+		while(rangeIterator.hasNext()) {
+			range.append(rangeIterator.next()).append(" ");
+		}
+		assert range.toString().equals("6 7 8 10 13 ");
+		
+		assert balancedTree.size() == 10000;
+		assert balancedTree.select(4999) == 50000 && balancedTree.rank(50001) == 5000;
+		assert balancedTree.rangeCount(15, 95) == 8;
+		int expected = 100;
+		for(Iterator<Integer> windows = balancedTree.rangeIterator(95, 1000); windows.hasNext(); expected += 10) {
+			assert windows.next() == expected;
+		}
+		assert expected == 1010;
+		
+		//Bulk loading gives the shortest possible tree straight away
+		Integer[] sorted = new Integer[1000];
+		for(int i = 0; i < sorted.length; i++) {
+			sorted[i] = i * 2;
+		}
+		MyBinarySearchTree<Integer> loaded = MyBinarySearchTree.fromSorted(sorted, true);
+		assert loaded.size() == 1000 && loaded.getHeight() == 10;
+		assert loaded.select(500) == 1000 && loaded.contains(998) && !loaded.contains(999);
+		loaded.insert(999);
+		assert loaded.rank(1000) == 501 && loaded.getHeight() <= 11;
+		
+		try {
+			MyBinarySearchTree.fromSorted(new Integer[] { 1, 3, 2 }, false);
+			assert false; //Shouldn't reach this line
+		} catch (IllegalArgumentException e){
+		}
+		
+		MyBinarySearchTree<Integer> odds = MyBinarySearchTree.fromSorted(new Integer[] { 1, 3, 5, 7, 9 }, false);
+		MyBinarySearchTree<Integer> small = MyBinarySearchTree.fromSorted(new Integer[] { 1, 2, 3, 4 }, false);
+		assert odds.toStringBFOrder().equals("5, 3, 9, 1, 7");
+		assert odds.union(small).toStringInOrder().equals("1, 2, 3, 4, 5, 7, 9");
+		assert odds.intersect(small).toStringInOrder().equals("1, 3");
+		assert odds.difference(small).toStringInOrder().equals("5, 7, 9");
+		assert small.difference(odds).toStringInOrder().equals("2, 4");
+		assert odds.union(small).getHeight() == 3 && odds.union(small).size() == 7;
+		
+		//Walk the whole tree with a visitor, a for-each loop and backwards
+		MyLongStack visited = new MyLongStack();
+		loaded.inOrder(element -> visited.push(element));
+		assert visited.size() == 1001 && visited.pop() == 1998;
+		int previous = -1;
+		for(int element: loaded) {
+			assert element > previous;
+			previous = element;
+		}
+		assert previous == 1998;
+		Iterator<Integer> backwards = loaded.descendingIterator();
+		assert backwards.next() == 1998 && backwards.next() == 1996;
+		Iterator<Integer> oddsBackwards = odds.descendingIterator();
+		assert oddsBackwards.next() == 9 && oddsBackwards.next() == 7 && oddsBackwards.next() == 5;
+		assert oddsBackwards.next() == 3 && oddsBackwards.next() == 1 && !oddsBackwards.hasNext();
+		
+		//An empty tree prints as empty rather than throwing
+		MyBinarySearchTree<Integer> emptyTree = new MyBinarySearchTree<Integer>();
+		assert emptyTree.toStringInOrder().equals("empty");
+		assert emptyTree.toStringPreOrder().equals("empty");
+		assert emptyTree.toStringPostOrder().equals("empty");
+		assert emptyTree.toStringBFOrder().equals("empty");
+		assert !emptyTree.iterator().hasNext() && !emptyTree.descendingIterator().hasNext();
+		emptyTree.inOrder(element -> { assert false; });
+		
+		//Split a big tree between threads with its spliterator
+		Integer[] numbers = new Integer[100000];
+		for(int i = 0; i < numbers.length; i++) {
+			numbers[i] = i;
+		}
+		MyBinarySearchTree<Integer> bigTree = MyBinarySearchTree.fromSorted(numbers, false);
+		assert bigTree.reduce(0, Integer::max) == 99999;
+		assert bigTree.count(element -> element % 3 == 0) == 33334;
+		assert bigTree.parallelStream().mapToLong(Integer::longValue).sum() == 100000L * 99999 / 2;
+		assert bigTree.parallelStream().filter(element -> element >= 99990).count() == 10;
+		assert bigTree.stream().skip(500).findFirst().get() == 500;
+		Spliterator<Integer> firstHalf = bigTree.spliterator();
+		Spliterator<Integer> prefix = firstHalf.trySplit();
+		assert prefix.estimateSize() + firstHalf.estimateSize() == 100000;
+		int[] lastOfPrefix = { -1 };
+		prefix.forEachRemaining(element -> lastOfPrefix[0] = element);
+		assert firstHalf.tryAdvance(element -> { assert element == lastOfPrefix[0] + 1; });
+		assert emptyTree.parallelStream().count() == 0 && emptyTree.reduce(0, Integer::sum) == 0;
+		
+		//The depth of big trees is worked out in parallel without recursing down them
+		assert bigTree.getHeight() == 17;
+		MyBinarySearchTree<Integer> longChain = new MyBinarySearchTree<Integer>();
+		for(int i = 0; i < 10000; i++) {
+			longChain.insert(i);
+		}
+		assert longChain.getHeight() == 10000;
+		
 		System.out.println("Tree tests passed.");
 		
 	}
 
+	private static void testConcurrentSkipList() {
+		
+		MyConcurrentSkipList<Integer> skipList = new MyConcurrentSkipList<Integer>();
+		assert skipList.toString().equals("empty");
+		assert skipList.first() == null;
+		
+		//Same elements as the binary tree test
+		int[] elements = { 8, 3, 10, 1, 6, 14, 4, 7, 13 };
+		for(int element: elements) {
+			assert skipList.insert(element);
+		}
+		assert !skipList.insert(6);
+		assert skipList.size() == 9;
+		assert skipList.toString().equals("1, 3, 4, 6, 7, 8, 10, 13, 14");
+		
+		assert skipList.contains(10);
+		assert !skipList.contains(100);
+		assert skipList.floor(9) == 8 && skipList.floor(8) == 8 && skipList.floor(0) == null;
+		assert skipList.ceiling(9) == 10 && skipList.ceiling(15) == null && skipList.ceiling(-5) == 1;
+		
+		assert skipList.remove(8);
+		assert !skipList.remove(8);
+		assert !skipList.contains(8);
+		assert skipList.floor(9) == 7;
+		
+		StringBuilder range = new StringBuilder();
+		Iterator<Integer> rangeIterator = skipList.iterator(4, 13);
+		while(rangeIterator.hasNext()) {
+			range.append(rangeIterator.next()).append(" ");
+		}
+		assert range.toString().equals("4 6 7 10 ");
+		
+		//Several threads insert overlapping ranges and remove the multiples of three
+		MyConcurrentSkipList<Integer> shared = new MyConcurrentSkipList<Integer>();
+		Thread[] writers = new Thread[4];
+		for(int t = 0; t < writers.length; t++) {
+			
+			final int start = t * 500;
+			writers[t] = new Thread(() -> {
+				for(int i = start; i < start + 1000; i++) {
+					shared.insert(i);
+					if(i % 3 == 0) {
+						shared.remove(i);
+					}
+				}
+			});
+			writers[t].start();
+			
+		}
+		
+		//Read while the writers are busy, the iterator must stay in order
+		int previous = Integer.MIN_VALUE;
+		for(int element: shared) {
+			assert element > previous;
+			previous = element;
+		}
+		
+		for(Thread writer: writers) {
+			joinQuietly(writer);
+		}
+		
+		int count = 0;
+		for(int element: shared) {
+			assert element % 3 != 0 && element < 2500;
+			count++;
+		}
+		assert count == 2500 - 834 && shared.size() == count;
+		
+		System.out.println("Concurrent skip list tests passed.");
+		
+	}
+
+	private static void testBPlusTree() {
+		
+		MyBPlusTree<Integer> smallTree = new MyBPlusTree<Integer>(4);
+		assert smallTree.toString().equals("empty") && smallTree.getHeight() == 0;
+		assert !smallTree.contains(1);
+		
+		//Same elements as the binary tree test, a fanout of 4 makes it split a few times
+		for(int element: new int[] { 8, 3, 10, 1, 6, 14, 4, 7, 13, 6 }) {
+			smallTree.insert(element);
+		}
+		assert smallTree.size() == 9 && smallTree.getHeight() == 2;
+		assert smallTree.toString().equals("1, 3, 4, 6, 7, 8, 10, 13, 14");
+		assert smallTree.contains(10) && !smallTree.contains(100);
+		
+		smallTree.remove(8);
+		smallTree.remove(14);
+		smallTree.remove(100);
+		assert smallTree.toString().equals("1, 3, 4, 6, 7, 10, 13");
+		
+		StringBuilder range = new StringBuilder();
+		for(Iterator<Integer> rangeIterator = smallTree.rangeIterator(5, 12); rangeIterator.hasNext(); ) {
+			range.append(rangeIterator.next()).append(" ");
+		}
+		assert range.toString().equals("6 7 10 ");
+		
+		//Random inserts and removes checked against the balanced binary tree
+		MyBPlusTree<Integer> bTree = new MyBPlusTree<Integer>(5);
+		MyBinarySearchTree<Integer> expected = new MyBinarySearchTree<Integer>(true);
+		Random random = new Random(22);
+		for(int i = 0; i < 20000; i++) {
+			
+			int element = random.nextInt(2000);
+			if(random.nextInt(3) == 0) {
+				bTree.remove(element);
+				expected.remove(element);
+			} else {
+				bTree.insert(element);
+				expected.insert(element);
+			}
+			
+			if(i % 1000 == 0) {
+				assert bTree.contains(element) == expected.contains(element);
+			}
+			
+		}
+		assert bTree.size() == expected.size();
+		assert bTree.toString().equals(expected.toStringInOrder());
+		
+		for(int element = 0; element < 2000; element++) {
+			bTree.remove(element);
+		}
+		assert bTree.size() == 0 && bTree.toString().equals("empty") && !bTree.iterator().hasNext();
+		
+		//A wide tree stays very shallow
+		MyBPlusTree<Integer> wideTree = new MyBPlusTree<Integer>();
+		for(int i = 0; i < 100000; i++) {
+			wideTree.insert(i);
+		}
+		assert wideTree.getHeight() <= 4;
+		int next = 500;
+		for(Iterator<Integer> window = wideTree.rangeIterator(500, 599); window.hasNext(); next++) {
+			assert window.next() == next;
+		}
+		assert next == 600;
+		
+		System.out.println("B+ tree tests passed.");
+		
+	}
+
 	private static void testStacksAndQueues() {
 		
 		//Build and test a Stack with Integers
@@ -219,6 +1024,40 @@ public class FundamentalsTester {
 		} catch (ArrayIndexOutOfBoundsException e){
 		}
 		
+		//Push enough to make the array grow, then pop it all back
+		MyStack<Integer> bigStack = new MyStack<Integer>(2);
+		for(int i = 0; i < 100; i++) {
+			bigStack.push(i);
+		}
+		assert bigStack.size() == 100;
+		for(int i = 99; i >= 0; i--) {
+			assert bigStack.pop() == i;
+		}
+		
+		//Primitive stacks
+		MyIntStack intStack = new MyIntStack(1);
+		intStack.push(1);
+		intStack.push(2);
+		intStack.push(3);
+		assert intStack.toString().equals("3, 2, 1");
+		assert intStack.pop() == 3;
+		
+		MyLongStack longStack = new MyLongStack();
+		longStack.push(Long.MAX_VALUE);
+		assert longStack.pop() == Long.MAX_VALUE;
+		assert !longStack.hasNext();
+		
+		MyBooleanStack booleanStack = new MyBooleanStack();
+		booleanStack.push(true);
+		booleanStack.push(false);
+		assert !booleanStack.pop();
+		assert booleanStack.pop();
+		try {
+			booleanStack.pop();
+			assert false; //Shouldn't reach this line
+		} catch (ArrayIndexOutOfBoundsException e){
+		}
+		
 		//Build and test a Queue with integers
 		MyQueue<Integer> testQueue = new MyQueue<Integer>();
 		testQueue.enqueue(1);
@@ -241,10 +1080,245 @@ public class FundamentalsTester {
 		} catch (ArrayIndexOutOfBoundsException e){
 		}
 		
+		//Wrap around and grow the ring buffer
+		int expected = 0;
+		MyQueue<Integer> orderQueue = new MyQueue<Integer>();
+		for(int i = 0; i < 1000; i++) {
+			orderQueue.enqueue(i);
+			if(i % 3 == 0) {
+				assert orderQueue.dequeue() == expected++;
+			}
+		}
+		while(orderQueue.hasNext()) {
+			assert orderQueue.dequeue() == expected++;
+		}
+		assert expected == 1000;
+		
+		//A bounded queue refuses elements once it is full
+		MyQueue<Integer> boundedQueue = new MyQueue<Integer>(3);
+		assert boundedQueue.offer(1);
+		assert boundedQueue.offer(2);
+		assert boundedQueue.offer(3);
+		assert boundedQueue.isFull();
+		assert !boundedQueue.offer(4);
+		try {
+			boundedQueue.enqueue(4);
+			assert false; //Shouldn't reach this line
+		} catch (IllegalStateException e){
+		}
+		assert boundedQueue.dequeue() == 1;
+		assert boundedQueue.offer(4);
+		assert boundedQueue.toString().equals("2, 3, 4");
+		
+		//Big structures print in linear time, and writeTo streams the same text
+		MyLinkedList<Integer> dumpList = new MyLinkedList<Integer>();
+		MyQueue<Integer> dumpQueue = new MyQueue<Integer>();
+		MyStack<Integer> dumpStack = new MyStack<Integer>();
+		for(int i = 0; i < 100000; i++) {
+			dumpList.insertLast(i);
+			dumpQueue.enqueue(i);
+			dumpStack.push(i);
+		}
+		
+		String listString = dumpList.toString();
+		assert listString.startsWith("0, 1, 2, ") && listString.endsWith(", 99998, 99999");
+		assert dumpQueue.toString().equals(listString);
+		assert dumpStack.toString().startsWith("99999, 99998, ");
+		
+		StringBuilder listOut = new StringBuilder();
+		StringBuilder queueOut = new StringBuilder();
+		StringBuilder stackOut = new StringBuilder();
+		try {
+			dumpList.writeTo(listOut);
+			dumpQueue.writeTo(queueOut);
+			dumpStack.writeTo(stackOut);
+			new MyStack<Integer>().writeTo(stackOut.append(" / "));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		assert listOut.toString().equals(listString);
+		assert queueOut.toString().equals(listString);
+		assert stackOut.toString().equals(dumpStack.toString() + " / empty");
+		
 		System.out.println("Stack and Queue tests passed.");
 		
 	}
 
+	private static void testConcurrentQueuesAndStacks() {
+		
+		//One producer hands numbers to one consumer through a small ring buffer
+		final MySpscQueue<Integer> spscQueue = new MySpscQueue<Integer>(16);
+		Thread producer = new Thread(() -> {
+			for(int i = 0; i < 100000; i++) {
+				while(!spscQueue.offer(i)) {
+					Thread.yield();
+				}
+			}
+		});
+		producer.start();
+		
+		long expected = 0;
+		while(expected < 100000) {
+			Integer next = spscQueue.poll();
+			if(next != null) {
+				assert next == expected;
+				expected++;
+			} else {
+				Thread.yield();
+			}
+		}
+		joinQuietly(producer);
+		assert !spscQueue.hasNext();
+		
+		//Several producers, each element must arrive exactly once and in order per producer
+		final MyMpscQueue<int[]> mpscQueue = new MyMpscQueue<int[]>(64);
+		Thread[] producers = new Thread[4];
+		for(int p = 0; p < producers.length; p++) {
+			final int id = p;
+			producers[p] = new Thread(() -> {
+				for(int i = 0; i < 20000; i++) {
+					while(!mpscQueue.offer(new int[] { id, i })) {
+						Thread.yield();
+					}
+				}
+			});
+			producers[p].start();
+		}
+		
+		final int[] lastSeen = { -1, -1, -1, -1 };
+		int received = 0;
+		while(received < producers.length * 20000) {
+			int drained = mpscQueue.drainTo(pair -> {
+				assert pair[1] == lastSeen[pair[0]] + 1;
+				lastSeen[pair[0]] = pair[1];
+			}, 32);
+			if(drained == 0) {
+				Thread.yield();
+			}
+			received += drained;
+		}
+		for(Thread thread: producers) {
+			joinQuietly(thread);
+		}
+		assert mpscQueue.poll() == null;
+		
+		//An action which throws part way through a drain doesn't leave the queues stuck
+		MySpscQueue<Integer> throwingSpsc = new MySpscQueue<Integer>(8);
+		MyMpscQueue<Integer> throwingMpsc = new MyMpscQueue<Integer>(8);
+		for(int i = 0; i < 5; i++) {
+			throwingSpsc.offer(i);
+			throwingMpsc.offer(i);
+		}
+		Consumer<Integer> failOnTwo = element -> {
+			if(element == 2) {
+				throw new IllegalStateException();
+			}
+		};
+		try {
+			throwingSpsc.drainTo(failOnTwo, 5);
+			assert false; //Shouldn't reach this line
+		} catch (IllegalStateException e) {
+		}
+		try {
+			throwingMpsc.drainTo(failOnTwo, 5);
+			assert false; //Shouldn't reach this line
+		} catch (IllegalStateException e) {
+		}
+		assert throwingSpsc.poll() == 3 && throwingSpsc.poll() == 4 && throwingSpsc.poll() == null;
+		assert throwingMpsc.poll() == 3 && throwingMpsc.poll() == 4 && throwingMpsc.poll() == null;
+		for(int i = 0; i < 16; i++) {
+			
+			//Both fill up to their capacity again
+			boolean spscAccepted = throwingSpsc.offer(i);
+			boolean mpscAccepted = throwingMpsc.offer(i);
+			assert spscAccepted == (i < 8) && mpscAccepted == (i < 8);
+			
+		}
+		assert throwingSpsc.poll() == 0 && throwingMpsc.poll() == 0;
+		
+		//A consumer waits on a blocking queue instead of spinning, taking a few at a time
+		final MyBlockingQueue<Integer> blockingQueue = new MyBlockingQueue<Integer>(4);
+		final int[] consumedSum = new int[1];
+		Thread consumer = new Thread(() -> {
+			try {
+				int consumedCount = 0;
+				while(consumedCount < 1000) {
+					MyLinkedList<Integer> batch = blockingQueue.takeAll(3);
+					assert batch.getLength() <= 3;
+					while(batch.getLength() > 0) {
+						consumedSum[0] += batch.delete();
+						consumedCount++;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		
+		try {
+			for(int i = 0; i < 1000; i++) {
+				blockingQueue.put(i);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		joinQuietly(consumer);
+		assert consumedSum[0] == 999 * 1000 / 2;
+		
+		try {
+			assert blockingQueue.poll(10, TimeUnit.MILLISECONDS) == null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		//Threads share a stack as a pool, checking objects out and returning them
+		final MyConcurrentStack<Integer> pool = new MyConcurrentStack<Integer>(2);
+		for(int i = 0; i < 100; i++) {
+			pool.push(i);
+		}
+		Thread[] workers = new Thread[4];
+		for(int w = 0; w < workers.length; w++) {
+			workers[w] = new Thread(() -> {
+				for(int i = 0; i < 10000; i++) {
+					Integer item = pool.tryPop();
+					if(item != null) {
+						pool.push(item);
+					}
+				}
+			});
+			workers[w].start();
+		}
+		for(Thread thread: workers) {
+			joinQuietly(thread);
+		}
+		
+		//Every item should be back exactly once
+		boolean[] returned = new boolean[100];
+		while(pool.hasNext()) {
+			int item = pool.pop();
+			assert !returned[item];
+			returned[item] = true;
+		}
+		for(boolean wasReturned: returned) {
+			assert wasReturned;
+		}
+		assert pool.tryPop() == null;
+		
+		System.out.println("Concurrent queue and stack tests passed.");
+		
+	}
+
+	private static void joinQuietly(Thread thread) {
+		
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+	}
+
 	private static void testLinkedList() {
 		
 		//Build and test a LinkedList with Integers
@@ -293,8 +1367,208 @@ public class FundamentalsTester {
 		} catch (ArrayIndexOutOfBoundsException e){
 		}
 		
+		//Walk both ways and delete from the back, which no longer needs a walk to the end
+		MyLinkedList<Integer> longList = new MyLinkedList<Integer>();
+		for(int i = 0; i < 100; i++) {
+			longList.insertLast(i);
+		}
+		assert longList.get(10) == 10;
+		assert longList.get(90) == 90;
+		assert longList.deleteLast() == 99;
+		assert longList.deleteLast() == 98;
+		longList.insert(-1, 97);
+		assert longList.get(97) == -1 && longList.get(96) == 96 && longList.getLength() == 99;
+		
+		int sum = 0;
+		for(int element: longList) {
+			sum += element;
+		}
+		assert sum == 97 * 98 / 2 - 1;
+		
+		//Use a list iterator to edit the list in place: drop the odd numbers and double the evens
+		ListIterator<Integer> editor = longList.listIterator(0);
+		while(editor.hasNext()) {
+			
+			int element = editor.next();
+			if(element % 2 != 0) {
+				editor.remove();
+			} else {
+				editor.set(element * 2);
+			}
+			
+		}
+		assert longList.getLength() == 49;
+		assert longList.get(0) == 0 && longList.get(48) == 192;
+		
+		//Go backwards from the end, adding a marker in front of every element
+		editor = longList.listIterator(longList.getLength());
+		int count = 0;
+		while(editor.hasPrevious()) {
+			editor.previous();
+			editor.add(-1);
+			editor.previous();
+			count++;
+		}
+		assert count == 49 && longList.getLength() == 98;
+		assert longList.get(0) == -1 && longList.get(1) == 0 && longList.get(97) == 192;
+		
+		//Iterators are fail-fast
+		Iterator<Integer> stale = longList.iterator();
+		longList.insert(5);
+		try {
+			stale.next();
+			assert false; //Shouldn't reach this line
+		} catch (ConcurrentModificationException e){
+		}
+		
+		while(longList.getLength() > 0) {
+			longList.deleteLast();
+		}
+		assert longList.toString().equals("empty") && !longList.iterator().hasNext();
+		
 		System.out.println("Linked list tests passed.");
 		
 	}
 
+	private static void testUnrolledLinkedList() {
+		
+		//Same basic tests as the normal linked list
+		MyUnrolledLinkedList<Integer> testList = new MyUnrolledLinkedList<Integer>(4);
+		assert testList.toString().equals("empty");
+		
+		testList.insert(3, 0);
+		testList.insert(5);
+		testList.insert(2, 1);
+		testList.insert(6, 9);
+		assert testList.toString().equals("5, 2, 3, 6");
+		assert testList.get(2) == 3;
+		assert testList.delete(0) == 5;
+		assert testList.toString().equals("2, 3, 6");
+		
+		//Small nodes so that plenty of splits, borrows and merges happen, checked against MyLinkedList
+		MyLinkedList<Integer> expected = new MyLinkedList<Integer>();
+		testList = new MyUnrolledLinkedList<Integer>(4);
+		Random random = new Random(15);
+		for(int i = 0; i < 2000; i++) {
+			
+			int choice = random.nextInt(6);
+			if(choice < 3 || expected.getLength() == 0) {
+				int index = random.nextInt(expected.getLength() + 1);
+				expected.insert(i, index);
+				testList.insert(i, index);
+			} else if(choice == 3) {
+				int index = random.nextInt(expected.getLength());
+				assert expected.delete(index).equals(testList.delete(index));
+			} else if(choice == 4) {
+				assert expected.deleteLast().equals(testList.deleteLast());
+			} else {
+				int index = random.nextInt(expected.getLength());
+				assert expected.get(index).equals(testList.get(index));
+			}
+			
+		}
+		assert expected.getLength() == testList.getLength();
+		assert expected.toString().equals(testList.toString());
+		
+		//Remove every other element through the iterator
+		Iterator<Integer> scan = testList.iterator();
+		boolean drop = true;
+		int kept = 0;
+		while(scan.hasNext()) {
+			scan.next();
+			if(drop) {
+				scan.remove();
+			} else {
+				kept++;
+			}
+			drop = !drop;
+		}
+		assert testList.getLength() == kept;
+		
+		Iterator<Integer> check = expected.iterator();
+		drop = true;
+		while(check.hasNext()) {
+			check.next();
+			if(drop) {
+				check.remove();
+			}
+			drop = !drop;
+		}
+		assert expected.toString().equals(testList.toString());
+		
+		while(testList.getLength() > 0) {
+			testList.delete();
+		}
+		assert testList.toString().equals("empty");
+		
+		try {
+			testList.deleteLast();
+			assert false; //Shouldn't reach this line
+		} catch (ArrayIndexOutOfBoundsException e){
+		}
+		
+		System.out.println("Unrolled linked list tests passed.");
+		
+	}
+
+	private static void testIndexedSkipList() {
+		
+		MyIndexedSkipList<Integer> skipList = new MyIndexedSkipList<Integer>();
+		assert skipList.toString().equals("empty");
+		
+		skipList.insert(3, 0);
+		skipList.insert(5);
+		skipList.insert(2, 1);
+		skipList.insert(6, 9);
+		assert skipList.toString().equals("5, 2, 3, 6");
+		assert skipList.get(2) == 3;
+		assert skipList.delete(0) == 5;
+		assert skipList.set(1, 4) == 3;
+		assert skipList.toString().equals("2, 4, 6");
+		
+		//Random positional updates checked against MyLinkedList
+		MyLinkedList<Integer> expected = new MyLinkedList<Integer>();
+		skipList = new MyIndexedSkipList<Integer>();
+		Random random = new Random(17);
+		for(int i = 0; i < 5000; i++) {
+			
+			int choice = random.nextInt(5);
+			if(choice < 2 || expected.getLength() == 0) {
+				int index = random.nextInt(expected.getLength() + 1);
+				expected.insert(i, index);
+				skipList.insert(i, index);
+			} else if(choice == 2) {
+				int index = random.nextInt(expected.getLength());
+				assert expected.delete(index).equals(skipList.delete(index));
+			} else if(choice == 3) {
+				assert expected.deleteLast().equals(skipList.deleteLast());
+			} else {
+				int index = random.nextInt(expected.getLength());
+				assert expected.get(index).equals(skipList.get(index));
+			}
+			
+		}
+		assert expected.getLength() == skipList.getLength();
+		assert expected.toString().equals(skipList.toString());
+		
+		int index = 0;
+		for(int element: skipList) {
+			assert element == expected.get(index++);
+		}
+		
+		while(skipList.getLength() > 0) {
+			skipList.delete();
+		}
+		assert skipList.toString().equals("empty");
+		
+		try {
+			skipList.get(0);
+			assert false; //Shouldn't reach this line
+		} catch (ArrayIndexOutOfBoundsException e){
+		}
+		
+		System.out.println("Indexed skip list tests passed.");
+		
+	}
+
 }
@@ -1,5 +1,6 @@
 /**
  * These are the nodes that make up MyLinkedList. The class is simple and self explanatory.
+ * Each node points at both the next and the previous node so the list can be walked either way.
  * @author Andrew
  *
  * @param <T>
@@ -8,10 +9,12 @@ public class LinkedListNode<T> {
 	
 	private T element;
 	private LinkedListNode<T> next;
+	private LinkedListNode<T> previous;
 
 	public LinkedListNode(T element) {
 		this.element = element;
 		next = null;
+		previous = null;
 	}
 
 	public void setNext(LinkedListNode<T> node) {
@@ -30,4 +33,20 @@ public class LinkedListNode<T> {
 		return element;
 	}
 
+	public void setElement(T element) {
+		this.element = element;
+	}
+
+	public void setPrevious(LinkedListNode<T> node) {
+		previous = node;
+	}
+
+	public boolean hasPrevious() {
+		return previous != null;
+	}
+
+	public LinkedListNode<T> getPrevious() {
+		return previous;
+	}
+
 }
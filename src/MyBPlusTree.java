@@ -0,0 +1,571 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A B+ tree is an ordered set like MyBinarySearchTree, but each node holds a sorted array of up to
+ * fanout - 1 elements instead of just one. The tree is therefore only log base fanout of n levels
+ * deep, and within a node the right element or child is found with a binary search over neighbouring
+ * array slots, which is far kinder to the CPU cache than following a pointer per comparison.
+ * The elements themselves all live in the leaves. Inner nodes only hold copies of some elements to
+ * steer searches: child i holds the elements which are at least keys[i - 1] and less than keys[i].
+ * Each leaf also points at the next leaf, so a range scan finds its first element and then just
+ * walks along the leaves.
+ * A node that overflows is split in two and the split is passed up to its parent. A node that drops
+ * below half full borrows an element from a sibling, or is merged with one, and that is passed up too.
+ * Every leaf is always at the same depth, so insert, remove and contains are all O(log(n)).
+ * @author Andrew
+ *
+ * @param <T>
+ */
+
+public class MyBPlusTree<T extends Comparable<T>> implements Iterable<T> {
+	
+	private static final int DEFAULT_FANOUT = 64;
+	
+	private final int maxKeys;
+	private final int minKeys;
+	private Node root;
+	private int size;
+	
+	public MyBPlusTree() {
+		
+		this(DEFAULT_FANOUT);
+		
+	}
+
+	/*
+	 * Creates a tree whose inner nodes have at most fanout children, and whose leaves hold
+	 * at most fanout - 1 elements. The fanout must be at least 4.
+	 */
+	public MyBPlusTree(int fanout) {
+		
+		if(fanout < 4) {
+			throw new IllegalArgumentException("Fanout must be at least 4");
+		}
+		
+		maxKeys = fanout - 1;
+		minKeys = maxKeys / 2;
+		root = null;
+		size = 0;
+		
+	}
+
+	/*
+	 * Inserts the given element, if it isn't already in the tree.
+	 */
+	public void insert(T element) {
+		
+		if(root == null) {
+			root = new Leaf(maxKeys);
+		}
+		
+		//Remember the way down so splits can be passed back up
+		MyStack<Inner> parents = new MyStack<Inner>();
+		MyIntStack childIndexes = new MyIntStack();
+		Leaf leaf = findLeaf(element, parents, childIndexes);
+		
+		int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, element);
+		if(position >= 0) {
+			
+			//Already in the tree
+			return;
+			
+		}
+		
+		insertAt(leaf.keys, leaf.count, -position - 1, element);
+		leaf.count++;
+		size++;
+		
+		Node node = leaf;
+		
+		while(node.count > maxKeys) {
+			
+			//Split the node and give the parent a separator key and the new right half
+			Node sibling;
+			Object separator;
+			
+			if(node instanceof Leaf) {
+				
+				Leaf right = splitLeaf((Leaf) node);
+				separator = right.keys[0];
+				sibling = right;
+				
+			} else {
+				
+				Inner inner = (Inner) node;
+				int middle = inner.count / 2;
+				separator = inner.keys[middle];
+				sibling = splitInner(inner, middle);
+				
+			}
+			
+			if(!parents.hasNext()) {
+				
+				//The root split, so the tree grows a level
+				Inner newRoot = new Inner(maxKeys);
+				newRoot.keys[0] = separator;
+				newRoot.children[0] = node;
+				newRoot.children[1] = sibling;
+				newRoot.count = 1;
+				root = newRoot;
+				return;
+				
+			}
+			
+			Inner parent = parents.pop();
+			int index = childIndexes.pop();
+			insertAt(parent.keys, parent.count, index, separator);
+			insertAt(parent.children, parent.count + 1, index + 1, sibling);
+			parent.count++;
+			node = parent;
+			
+		}
+		
+	}
+
+	/*
+	 * Returns whether or not the given element is in the tree
+	 */
+	public boolean contains(T element) {
+		
+		if(root == null) {
+			return false;
+		}
+		
+		Leaf leaf = findLeaf(element, null, null);
+		return Arrays.binarySearch(leaf.keys, 0, leaf.count, element) >= 0;
+		
+	}
+
+	/*
+	 * Finds the given element in the tree, if it exists, and deletes it.
+	 */
+	public void remove(T element) {
+		
+		if(root == null) {
+			return;
+		}
+		
+		MyStack<Inner> parents = new MyStack<Inner>();
+		MyIntStack childIndexes = new MyIntStack();
+		Leaf leaf = findLeaf(element, parents, childIndexes);
+		
+		int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, element);
+		if(position < 0) {
+			
+			//Not in the tree
+			return;
+			
+		}
+		
+		removeAt(leaf.keys, leaf.count, position);
+		leaf.count--;
+		size--;
+		
+		Node node = leaf;
+		
+		while(node != root && node.count < minKeys) {
+			
+			Inner parent = parents.pop();
+			int index = childIndexes.pop();
+			
+			if(index > 0 && parent.children[index - 1].count > minKeys) {
+				
+				borrowFromLeft(parent, index);
+				break;
+				
+			} else if(index < parent.count && parent.children[index + 1].count > minKeys) {
+				
+				borrowFromRight(parent, index);
+				break;
+				
+			} else if(index > 0) {
+				
+				merge(parent, index - 1);
+				
+			} else {
+				
+				merge(parent, index);
+				
+			}
+			
+			//The parent lost a key, it may now be too small itself
+			node = parent;
+			
+		}
+		
+		if(size == 0) {
+			
+			root = null;
+			
+		} else if(root instanceof Inner && root.count == 0) {
+			
+			//The root's last two children were merged, so the tree shrinks a level
+			root = ((Inner) root).children[0];
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the number of elements in the tree.
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns the number of levels in the tree, 0 if it is empty.
+	 */
+	public int getHeight() {
+		
+		int height = 0;
+		
+		for(Node node = root; node != null; node = (node instanceof Inner) ? ((Inner) node).children[0] : null) {
+			height++;
+		}
+		
+		return height;
+		
+	}
+
+	/*
+	 * Returns an iterator over every element in ascending order.
+	 * The tree must not be changed while the iterator is in use.
+	 */
+	public Iterator<T> iterator() {
+		
+		Node node = root;
+		while(node instanceof Inner) {
+			node = ((Inner) node).children[0];
+		}
+		
+		return new LeafIterator((Leaf) node, 0, null);
+		
+	}
+
+	/*
+	 * Returns an iterator over the elements between low and high (including both ends) in
+	 * ascending order. It searches down once for low and then walks along the leaves.
+	 * The tree must not be changed while the iterator is in use.
+	 */
+	public Iterator<T> rangeIterator(T low, T high) {
+		
+		if(root == null) {
+			return new LeafIterator(null, 0, high);
+		}
+		
+		Leaf leaf = findLeaf(low, null, null);
+		int position = Arrays.binarySearch(leaf.keys, 0, leaf.count, low);
+		
+		return new LeafIterator(leaf, position >= 0 ? position : -position - 1, high);
+		
+	}
+
+	/*
+	 * Returns the elements in ascending order separated by commas.
+	 */
+	public String toString() {
+		
+		return MyWritable.render(this::writeTo, size);
+		
+	}
+
+	/*
+	 * Writes the elements to out in the same format as toString, one leaf at a time.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		if(size == 0) {
+			out.append("empty");
+			return;
+		}
+		
+		String separator = "";
+		
+		for(T element: this) {
+			out.append(separator).append(element.toString());
+			separator = ", ";
+		}
+		
+	}
+
+	/*
+	 * Walks down from the root to the leaf where element belongs. If parents isn't null it is
+	 * filled with the inner nodes on the way, and childIndexes with which child was taken.
+	 */
+	private Leaf findLeaf(T element, MyStack<Inner> parents, MyIntStack childIndexes) {
+		
+		Node node = root;
+		
+		while(node instanceof Inner) {
+			
+			Inner inner = (Inner) node;
+			
+			//An element equal to a separator belongs in the child to its right
+			int index = Arrays.binarySearch(inner.keys, 0, inner.count, element);
+			index = (index >= 0) ? index + 1 : -index - 1;
+			
+			if(parents != null) {
+				parents.push(inner);
+				childIndexes.push(index);
+			}
+			
+			node = inner.children[index];
+			
+		}
+		
+		return (Leaf) node;
+		
+	}
+
+	/*
+	 * Moves the top half of a full leaf into a new leaf linked in after it, and returns the new leaf.
+	 */
+	private Leaf splitLeaf(Leaf leaf) {
+		
+		Leaf right = new Leaf(maxKeys);
+		int keep = leaf.count / 2;
+		
+		right.count = leaf.count - keep;
+		System.arraycopy(leaf.keys, keep, right.keys, 0, right.count);
+		Arrays.fill(leaf.keys, keep, leaf.count, null);
+		leaf.count = keep;
+		
+		right.next = leaf.next;
+		leaf.next = right;
+		
+		return right;
+		
+	}
+
+	/*
+	 * Moves the keys and children after keys[middle] into a new inner node and returns it.
+	 * keys[middle] itself is removed, the caller passes it up to the parent.
+	 */
+	private Inner splitInner(Inner inner, int middle) {
+		
+		Inner right = new Inner(maxKeys);
+		
+		right.count = inner.count - middle - 1;
+		System.arraycopy(inner.keys, middle + 1, right.keys, 0, right.count);
+		System.arraycopy(inner.children, middle + 1, right.children, 0, right.count + 1);
+		Arrays.fill(inner.keys, middle, inner.count, null);
+		Arrays.fill(inner.children, middle + 1, inner.count + 1, null);
+		inner.count = middle;
+		
+		return right;
+		
+	}
+
+	/*
+	 * Moves the last element (or child) of the left sibling of parent.children[index] across to it.
+	 */
+	private void borrowFromLeft(Inner parent, int index) {
+		
+		Node node = parent.children[index];
+		Node left = parent.children[index - 1];
+		
+		if(node instanceof Leaf) {
+			
+			insertAt(node.keys, node.count, 0, left.keys[left.count - 1]);
+			left.keys[left.count - 1] = null;
+			parent.keys[index - 1] = node.keys[0];
+			
+		} else {
+			
+			//The separator comes down in front and the sibling's last key goes up to replace it
+			Inner inner = (Inner) node;
+			Inner leftInner = (Inner) left;
+			insertAt(inner.keys, inner.count, 0, parent.keys[index - 1]);
+			insertAt(inner.children, inner.count + 1, 0, leftInner.children[left.count]);
+			parent.keys[index - 1] = left.keys[left.count - 1];
+			left.keys[left.count - 1] = null;
+			leftInner.children[left.count] = null;
+			
+		}
+		
+		node.count++;
+		left.count--;
+		
+	}
+
+	/*
+	 * Moves the first element (or child) of the right sibling of parent.children[index] across to it.
+	 */
+	private void borrowFromRight(Inner parent, int index) {
+		
+		Node node = parent.children[index];
+		Node right = parent.children[index + 1];
+		
+		if(node instanceof Leaf) {
+			
+			node.keys[node.count] = right.keys[0];
+			removeAt(right.keys, right.count, 0);
+			parent.keys[index] = right.keys[0];
+			
+		} else {
+			
+			Inner inner = (Inner) node;
+			Inner rightInner = (Inner) right;
+			inner.keys[inner.count] = parent.keys[index];
+			inner.children[inner.count + 1] = rightInner.children[0];
+			parent.keys[index] = right.keys[0];
+			removeAt(right.keys, right.count, 0);
+			removeAt(rightInner.children, right.count + 1, 0);
+			
+		}
+		
+		node.count++;
+		right.count--;
+		
+	}
+
+	/*
+	 * Merges parent.children[index + 1] into parent.children[index] and removes it and its
+	 * separator from the parent.
+	 */
+	private void merge(Inner parent, int index) {
+		
+		Node left = parent.children[index];
+		Node right = parent.children[index + 1];
+		
+		if(left instanceof Leaf) {
+			
+			System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+			left.count += right.count;
+			((Leaf) left).next = ((Leaf) right).next;
+			
+		} else {
+			
+			//The separator comes down between the two halves
+			left.keys[left.count] = parent.keys[index];
+			System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+			System.arraycopy(((Inner) right).children, 0, ((Inner) left).children, left.count + 1, right.count + 1);
+			left.count += right.count + 1;
+			
+		}
+		
+		removeAt(parent.keys, parent.count, index);
+		removeAt(parent.children, parent.count + 1, index + 1);
+		parent.count--;
+		
+	}
+
+	/*
+	 * Shifts array[index..count-1] along one place and puts value at index.
+	 */
+	private static void insertAt(Object[] array, int count, int index, Object value) {
+		
+		System.arraycopy(array, index, array, index + 1, count - index);
+		array[index] = value;
+		
+	}
+
+	/*
+	 * Shifts array[index+1..count-1] back one place over array[index] and clears the last slot.
+	 */
+	private static void removeAt(Object[] array, int count, int index) {
+		
+		System.arraycopy(array, index + 1, array, index, count - index - 1);
+		array[count - 1] = null;
+		
+	}
+
+	/*
+	 * Leaves and inner nodes both hold a sorted array of keys. The arrays have one spare slot so
+	 * a node can overflow by one before it is split.
+	 */
+	private static class Node {
+		
+		final Object[] keys;
+		int count;
+		
+		Node(int maxKeys) {
+			keys = new Object[maxKeys + 1];
+			count = 0;
+		}
+		
+	}
+
+	private static final class Leaf extends Node {
+		
+		Leaf next;
+		
+		Leaf(int maxKeys) {
+			super(maxKeys);
+			next = null;
+		}
+		
+	}
+
+	private static final class Inner extends Node {
+		
+		final Node[] children;
+		
+		Inner(int maxKeys) {
+			super(maxKeys);
+			children = new Node[maxKeys + 2];
+		}
+		
+	}
+
+	/*
+	 * Walks along the leaves from keys[index] of leaf, stopping after high if high isn't null.
+	 */
+	private class LeafIterator implements Iterator<T> {
+		
+		private final T high;
+		private Leaf leaf;
+		private int index;
+		
+		LeafIterator(Leaf leaf, int index, T high) {
+			
+			this.high = high;
+			this.leaf = leaf;
+			this.index = index;
+			skipEmpty();
+			
+		}
+		
+		@SuppressWarnings("unchecked")
+		public boolean hasNext() {
+			
+			return leaf != null && (high == null || ((T) leaf.keys[index]).compareTo(high) <= 0);
+			
+		}
+		
+		@SuppressWarnings("unchecked")
+		public T next() {
+			
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			T element = (T) leaf.keys[index];
+			index++;
+			skipEmpty();
+			
+			return element;
+			
+		}
+		
+		/*
+		 * Moves on to the start of the next leaf once this one has been used up.
+		 */
+		private void skipEmpty() {
+			
+			while(leaf != null && index >= leaf.count) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			
+		}
+		
+	}
+
+}
@@ -1,21 +1,55 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * A binary search tree is a branched structure made up of nodes which have 2 subnodes.
  * The left subnode is always less than and the right subnode is always greater than the
  * parent node. These trees allow for O(log(n)) insertion time and O(log(n)) look up time.
- * The algorithms can be done recursively or iteratively using stacks and queues. 
+ * The algorithms can be done recursively or iteratively using stacks and queues.
  * Recursive is neat, but more space intensive. Here we will use iterative methods.
- * 
+ * Inserting already sorted elements turns a plain binary search tree into a linked list, so the
+ * tree can also be created balanced. A balanced tree is an AVL tree: every node stores the height
+ * of its subtree, and after an insert or remove the nodes on the path back up to the root are
+ * rotated wherever one side has become two levels taller than the other. This keeps the height
+ * below about 1.44 log(n), so insert, remove and contains are O(log(n)) whatever the input order.
+ * Every node also counts the nodes in its subtree. With these counts the tree can answer order
+ * statistic questions (the k-th smallest element, how many elements are smaller than x, how many
+ * lie in a range) by walking a single path down from the root rather than visiting every node.
+ * A tree can also be built in one go from sorted elements, which takes O(n) and gives a tree
+ * of the smallest possible height, and the union, intersection or difference of two trees is
+ * built the same way after merging their elements in order.
+ * For big jobs the tree's spliterator hands whole subtrees to other threads, so parallel streams,
+ * reduce and count share the work out over the fork/join pool.
+ *
  * @author Andrew
  *
  * @param <T>
  */
 
-public class MyBinarySearchTree<T extends Comparable<T>> {
+public class MyBinarySearchTree<T extends Comparable<T>> implements Iterable<T> {
 	
 	private BSTNode<T> root;
+	private final boolean balanced;
 	
 	public MyBinarySearchTree() {
+		this(false);
+	}
+
+	/*
+	 * Creates a tree which rebalances itself on insert and remove if balanced is true.
+	 */
+	public MyBinarySearchTree(boolean balanced) {
 		root = null;
+		this.balanced = balanced;
 	}
 
 	/*
@@ -23,7 +57,11 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public void insert(T element) {
 		
-		if(root == null) {
+		if(balanced) {
+			
+			insertBalanced(element);
+			
+		} else if(root == null) {
 			
 			//Tree is currently empty
 			root = new BSTNode<T>(element);
@@ -35,7 +73,11 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 			
 			while(!inserted) {
 				
-				if(element.compareTo(current.getElement()) < 0) {
+				//Count the new element in every subtree we pass through
+				current.setSize(current.getSize() + 1);
+				int comparison = element.compareTo(current.getElement());
+				
+				if(comparison < 0) {
 					
 					//Element is less than current
 					if(current.getLeft() == null) {
@@ -51,7 +93,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 						
 					}
 					
-				} else if(element.compareTo(current.getElement()) > 0) {
+				} else if(comparison > 0) {
 					
 					//Element is greater than current
 					if(current.getRight() == null) {
@@ -70,6 +112,8 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 				} else {
 					
 					//Element must be equal to current therefore already in the tree
+					//so take back the counts added on the way down
+					adjustSizes(element, -1);
 					inserted = true;
 					
 				}
@@ -85,6 +129,11 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public void prettyPrint() {
 		
+		if(root == null) {
+			System.out.println("empty");
+			return;
+		}
+		
 		//Figure out the depth of the tree
 		int depth = root.computeDepth();
 		
@@ -97,7 +146,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 		//Base cases
 		spacings[0] = 0;
 		spacings[1] = 1;
-	
+		
 		for(int i = 2; i <= depth + 1; i++) {
 			spacings[i] = i - 1;
 			for(int k = 0; k < i; k++) {
@@ -141,7 +190,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 				//coming down from the previous level before we continue
 				System.out.print("\n");
 				
-				//Print y(depth - prevLevel - 1) lines of slashes 
+				//Print y(depth - prevLevel - 1) lines of slashes
 				//where number of pairs of slashes is 2^prevLevel
 				for(int i = 0; i < spacings[depth - prevLevel - 1]; i++) {
 					
@@ -239,7 +288,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 				branches.enqueue(false);
 				
 			} else {
-			
+				
 				if(current.getLeft() != null) {
 					toVisit.enqueue(current.getLeft());
 					levels.enqueue(currentLevel + 1);
@@ -260,7 +309,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 					branches.enqueue(false);
 				}
 				
-			}			
+			}
 			
 		}
 		
@@ -275,60 +324,139 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public String toStringInOrder() {
 		
-		String inOrderString = "";
+		return MyWritable.render(this::writeInOrder, size());
 		
-		//Use a stack to traverse the tree
-		MyStack<BSTNode<T>> toVisit = new MyStack<BSTNode<T>>();
+	}
+
+	/*
+	 * Writes the tree in in-order format (LNR) to out one element at a time, in the same format as
+	 * toStringInOrder. Nothing is built up in memory, so this suits very large trees.
+	 */
+	public void writeInOrder(Appendable out) throws IOException {
+		
+		if(root == null) {
+			out.append("empty");
+			return;
+		}
 		
-		//Use a second stack to keep track of seen vs not seen
-		MyStack<Boolean> seenStack = new MyStack<Boolean>();
+		String separator = "";
 		
-		//Add the root to get started
-		toVisit.push(root);
-		seenStack.push(false);
+		//Use a stack to traverse the tree, it only ever holds one path so it never grows past the height
+		MyStack<BSTNode<T>> toVisit = newPathStack();
+		BSTNode<T> current = root;
 		
 		/* Traversal algorithm:
-		 * 1. Pop next item off the stack
-		 * 2. If this item is seen, print it and go to the next loop.
-		 * 3. If there is no left or right, print it and go to the next loop.
-		 * 4. If it has a right then put this on the stack as unseen
-		 * 5. Put this item on the stack as seen.
-		 * 6. If it has a left, put on left as unseen.
+		 * 1. Push the current node and go left until there is no left
+		 * 2. Pop the next item off the stack and print it
+		 * 3. Carry on from its right
 		 */
 		
-		while(toVisit.hasNext()) {
+		while(current != null || toVisit.hasNext()) {
 			
-			BSTNode<T> current = toVisit.pop();
-			boolean seen = seenStack.pop();
+			while(current != null) {
+				toVisit.push(current);
+				current = current.getLeft();
+			}
 			
-			if(seen || (current.getLeft() == null && current.getRight() == null)) {
-				
-				inOrderString += current.getElement() + ", ";
-				
-			} else {
-				
-				if(current.getRight() != null) {
-					toVisit.push(current.getRight());
-					seenStack.push(false);
-				}
-				
+			current = toVisit.pop();
+			out.append(separator).append(String.valueOf(current.getElement()));
+			separator = ", ";
+			
+			current = current.getRight();
+			
+		}
+		
+	}
+
+	/*
+	 * Passes every element to visitor in ascending order. Unlike the iterator nothing is
+	 * created per call apart from the stack, so this is the cheapest way to walk the whole tree.
+	 */
+	public void inOrder(Consumer<? super T> visitor) {
+		
+		MyStack<BSTNode<T>> toVisit = newPathStack();
+		BSTNode<T> current = root;
+		
+		while(current != null || toVisit.hasNext()) {
+			
+			while(current != null) {
 				toVisit.push(current);
-				seenStack.push(true);
-				
-				if(current.getLeft() != null) {
-					toVisit.push(current.getLeft());
-					seenStack.push(false);
-				}
-				
+				current = current.getLeft();
 			}
 			
+			current = toVisit.pop();
+			visitor.accept(current.getElement());
+			current = current.getRight();
 			
 		}
 		
-		//Clipping off the trailing comma and space
-		inOrderString = inOrderString.substring(0, inOrderString.length()-2);
+	}
+
+	/*
+	 * Returns an iterator over the elements in ascending order.
+	 * The tree must not be changed while the iterator is in use.
+	 */
+	public Iterator<T> iterator() {
+		
+		return new TreeIterator(false);
 		
-		return inOrderString;
+	}
+
+	/*
+	 * Returns an iterator over the elements in descending order.
+	 * The tree must not be changed while the iterator is in use.
+	 */
+	public Iterator<T> descendingIterator() {
+		
+		return new TreeIterator(true);
+		
+	}
+
+	/*
+	 * Returns a spliterator over the elements in ascending order. It splits by handing off a node's
+	 * left subtree, so the stream library can spread work on a large tree across every core.
+	 * The tree must not be changed while it is in use.
+	 */
+	public Spliterator<T> spliterator() {
+		
+		return new TreeSpliterator(null, root);
+		
+	}
+
+	/*
+	 * Returns a sequential stream of the elements in ascending order.
+	 */
+	public Stream<T> stream() {
+		
+		return StreamSupport.stream(spliterator(), false);
+		
+	}
+
+	/*
+	 * Returns a parallel stream of the elements, which runs in the common fork/join pool.
+	 */
+	public Stream<T> parallelStream() {
+		
+		return StreamSupport.stream(spliterator(), true);
+		
+	}
+
+	/*
+	 * Combines every element with accumulator in parallel, starting from identity. The accumulator
+	 * must be associative, and identity must leave any element unchanged, as for Stream.reduce.
+	 */
+	public T reduce(T identity, BinaryOperator<T> accumulator) {
+		
+		return parallelStream().reduce(identity, accumulator);
+		
+	}
+
+	/*
+	 * Counts the elements which match the condition, in parallel.
+	 */
+	public long count(Predicate<? super T> condition) {
+		
+		return parallelStream().filter(condition).count();
 		
 	}
 
@@ -337,10 +465,24 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public String toStringPreOrder() {
 		
-		String preOrderString = "";
+		return MyWritable.render(this::writePreOrder, size());
+		
+	}
+
+	/*
+	 * Writes the tree in pre-order to out, in the same format as toStringPreOrder.
+	 */
+	public void writePreOrder(Appendable out) throws IOException {
+		
+		if(root == null) {
+			out.append("empty");
+			return;
+		}
+		
+		String separator = "";
 		
 		//Use a stack to traverse the tree
-		MyStack<BSTNode<T>> toVisit = new MyStack<BSTNode<T>>();
+		MyStack<BSTNode<T>> toVisit = newPathStack();
 		
 		//Add the root to get started
 		toVisit.push(root);
@@ -355,86 +497,81 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 		while(toVisit.hasNext()) {
 			
 			BSTNode<T> current = toVisit.pop();
-		
-			preOrderString += current.getElement() + ", ";
-				
+			
+			out.append(separator).append(String.valueOf(current.getElement()));
+			separator = ", ";
+			
 			if(current.getRight() != null) {
 				toVisit.push(current.getRight());
 			}
-
+			
 			if(current.getLeft() != null) {
 				toVisit.push(current.getLeft());
-			}	
+			}
 			
 		}
 		
-		//Clipping off the trailing comma and space
-		preOrderString = preOrderString.substring(0, preOrderString.length()-2);
-		
-		return preOrderString;
-		
 	}
 
 	/*
 	 * Returns a string representation of the tree in post-order i.e. LRN
 	 */
 	public String toStringPostOrder() {
+		
+		return MyWritable.render(this::writePostOrder, size());
+		
+	}
 
-		String postOrderString = "";
+	/*
+	 * Writes the tree in post-order to out, in the same format as toStringPostOrder.
+	 */
+	public void writePostOrder(Appendable out) throws IOException {
 		
-		//Use a stack to traverse the tree
-		MyStack<BSTNode<T>> toVisit = new MyStack<BSTNode<T>>();
+		if(root == null) {
+			out.append("empty");
+			return;
+		}
 		
-		//Use a second stack to keep track of seen vs not seen
-		MyStack<Boolean> seenStack = new MyStack<Boolean>();
+		String separator = "";
 		
-		//Add the root to get started
-		toVisit.push(root);
-		seenStack.push(false);
+		//Use a stack to traverse the tree
+		MyStack<BSTNode<T>> toVisit = newPathStack();
+		BSTNode<T> current = root;
+		
+		//The last node printed tells us whether we are coming back up from a node's right side
+		BSTNode<T> lastPrinted = null;
 		
 		/* Traversal algorithm:
-		 * 1. Pop next item off the stack
-		 * 2. If this item is seen, print it and go to the next loop.
-		 * 3. If there is no left or right, print it and go to the next loop.
-		 * 4. Put this item on the stack as seen.
-		 * 5. If it has a right then put this on the stack as unseen
-		 * 6. If it has a left, put on left as unseen.
+		 * 1. Push the current node and go left until there is no left
+		 * 2. Peek at the top of the stack
+		 * 3. If it has a right which hasn't been printed yet, carry on from the right
+		 * 4. Otherwise both sides are done, so pop it and print it
 		 */
 		
-		while(toVisit.hasNext()) {
+		while(current != null || toVisit.hasNext()) {
 			
-			BSTNode<T> current = toVisit.pop();
-			boolean seen = seenStack.pop();
+			while(current != null) {
+				toVisit.push(current);
+				current = current.getLeft();
+			}
 			
-			if(seen || (current.getLeft() == null && current.getRight() == null)) {
+			BSTNode<T> top = toVisit.peek();
+			
+			if(top.getRight() != null && top.getRight() != lastPrinted) {
 				
-				postOrderString += current.getElement() + ", ";
+				current = top.getRight();
 				
 			} else {
 				
-				toVisit.push(current);
-				seenStack.push(true);
-				
-				if(current.getRight() != null) {
-					toVisit.push(current.getRight());
-					seenStack.push(false);
-				}
-				
-				if(current.getLeft() != null) {
-					toVisit.push(current.getLeft());
-					seenStack.push(false);
-				}
+				toVisit.pop();
+				out.append(separator).append(String.valueOf(top.getElement()));
+				separator = ", ";
+				lastPrinted = top;
 				
 			}
 			
-			
 		}
 		
-		//Clipping off the trailing comma and space
-		postOrderString = postOrderString.substring(0, postOrderString.length()-2);
-		
-		return postOrderString;
-		
 	}
 
 	/*
@@ -442,7 +579,21 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public String toStringBFOrder() {
 		
-		String bfOrderString = "";
+		return MyWritable.render(this::writeBFOrder, size());
+		
+	}
+
+	/*
+	 * Writes the tree in breadth first order to out, in the same format as toStringBFOrder.
+	 */
+	public void writeBFOrder(Appendable out) throws IOException {
+		
+		if(root == null) {
+			out.append("empty");
+			return;
+		}
+		
+		String separator = "";
 		
 		//Use a queue to traverse the tree
 		MyQueue<BSTNode<T>> toVisit = new MyQueue<BSTNode<T>>();
@@ -460,7 +611,8 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 			
 			BSTNode<T> current = toVisit.dequeue();
 			
-			bfOrderString += current.getElement() + ", ";
+			out.append(separator).append(String.valueOf(current.getElement()));
+			separator = ", ";
 			
 			if(current.getLeft() != null) {
 				toVisit.enqueue(current.getLeft());
@@ -472,10 +624,15 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 			
 		}
 		
-		//Clipping off the trailing comma and space
-		bfOrderString = bfOrderString.substring(0, bfOrderString.length()-2);
+	}
+
+	/*
+	 * Returns a stack with room for a whole path from the root, so traversals don't have to grow it.
+	 * Only balanced trees know their height without walking the tree, a plain tree starts small.
+	 */
+	private MyStack<BSTNode<T>> newPathStack() {
 		
-		return bfOrderString;
+		return new MyStack<BSTNode<T>>(balanced ? heightOf(root) : 16);
 		
 	}
 
@@ -483,7 +640,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 * Returns whether or not the given element is in the tree
 	 */
 	public boolean contains(T element) {
-
+		
 		/* Algorithm:
 		 * 1. Does the current node have element? If it does then return true
 		 * 2. Is current smaller than element? Continue searching left
@@ -521,6 +678,11 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 	 */
 	public void remove(T element) {
 		
+		if(balanced) {
+			removeBalanced(element);
+			return;
+		}
+		
 		//Find the the element, and keep track of it's parent
 		BSTNode<T> parent = null;
 		BSTNode<T> current = root;
@@ -543,16 +705,23 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 					
 					//Put the left subtree into the left most node of the right subtree
 					BSTNode<T> mostLeft = current.getRight();
+					int leftSize = sizeOf(current.getLeft());
 					
 					//Keep iterating until mostLeft doesn't have a left child
+					//Every node on the way gains the left subtree underneath it
+					mostLeft.setSize(mostLeft.getSize() + leftSize);
 					while(mostLeft.getLeft() != null) {
 						mostLeft = mostLeft.getLeft();
+						mostLeft.setSize(mostLeft.getSize() + leftSize);
 					}
 					
 					mostLeft.setLeft(current.getLeft());
 					
 				}
 				
+				//The ancestors each lose a node
+				adjustSizes(element, -1);
+				
 				//If parent is null then root needs to change
 				if(parent == null) {
 					
@@ -561,7 +730,7 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 				} else {
 					
 					//Replace the node to be deleted with the newChild
-					if(parent.getLeft().getElement() == current.getElement()) {
+					if(parent.getLeft() == current) {
 						
 						//Replace left
 						parent.setLeft(newChild);
@@ -593,4 +762,736 @@ public class MyBinarySearchTree<T extends Comparable<T>> {
 		
 	}
 
+	/*
+	 * Returns the number of levels in the tree, 0 if it is empty.
+	 */
+	public int getHeight() {
+		
+		if(root == null) {
+			return 0;
+		}
+		
+		return balanced ? root.getHeight() : root.computeDepth();
+		
+	}
+
+	/*
+	 * Returns the number of elements in the tree.
+	 */
+	public int size() {
+		
+		return sizeOf(root);
+		
+	}
+
+	/*
+	 * Returns the k-th smallest element, counting from 0.
+	 * If k is not less than the size of the tree, throws ArrayIndexOutOfBoundsException
+	 */
+	public T select(int k) {
+		
+		if(k < 0 || k >= size()) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		BSTNode<T> current = root;
+		
+		while(true) {
+			
+			int leftSize = sizeOf(current.getLeft());
+			
+			if(k < leftSize) {
+				
+				current = current.getLeft();
+				
+			} else if(k == leftSize) {
+				
+				return current.getElement();
+				
+			} else {
+				
+				//Skip the left subtree and this node
+				k -= leftSize + 1;
+				current = current.getRight();
+				
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the number of elements in the tree which are less than the given element.
+	 * The element itself doesn't have to be in the tree.
+	 */
+	public int rank(T element) {
+		
+		int rank = 0;
+		BSTNode<T> current = root;
+		
+		while(current != null) {
+			
+			int comparison = element.compareTo(current.getElement());
+			
+			if(comparison <= 0) {
+				
+				current = current.getLeft();
+				
+			} else {
+				
+				//This node and everything left of it is smaller
+				rank += sizeOf(current.getLeft()) + 1;
+				current = current.getRight();
+				
+			}
+			
+		}
+		
+		return rank;
+		
+	}
+
+	/*
+	 * Returns the largest element less than or equal to the given element, or null if there is none.
+	 */
+	public T floor(T element) {
+		
+		T best = null;
+		BSTNode<T> current = root;
+		
+		while(current != null) {
+			
+			int comparison = element.compareTo(current.getElement());
+			
+			if(comparison == 0) {
+				return current.getElement();
+			} else if(comparison < 0) {
+				current = current.getLeft();
+			} else {
+				best = current.getElement();
+				current = current.getRight();
+			}
+			
+		}
+		
+		return best;
+		
+	}
+
+	/*
+	 * Returns the smallest element greater than or equal to the given element, or null if there is none.
+	 */
+	public T ceiling(T element) {
+		
+		T best = null;
+		BSTNode<T> current = root;
+		
+		while(current != null) {
+			
+			int comparison = element.compareTo(current.getElement());
+			
+			if(comparison == 0) {
+				return current.getElement();
+			} else if(comparison > 0) {
+				current = current.getRight();
+			} else {
+				best = current.getElement();
+				current = current.getLeft();
+			}
+			
+		}
+		
+		return best;
+		
+	}
+
+	/*
+	 * Returns the number of elements between low and high, including both ends.
+	 */
+	public int rangeCount(T low, T high) {
+		
+		if(low.compareTo(high) > 0) {
+			return 0;
+		}
+		
+		int count = rank(high) - rank(low);
+		
+		if(contains(high)) {
+			count++;
+		}
+		
+		return count;
+		
+	}
+
+	/*
+	 * Returns an iterator over the elements between low and high (including both ends) in
+	 * ascending order. It only visits the nodes on the paths to low and high and the ones in
+	 * between, so a range of k elements costs O(log(n) + k) in a balanced tree.
+	 * The tree must not be changed while the iterator is in use.
+	 */
+	public Iterator<T> rangeIterator(T low, T high) {
+		
+		return new RangeIterator(low, high);
+		
+	}
+
+	/*
+	 * Builds a tree holding the given elements, which must be in strictly ascending order.
+	 * Every node is made once and the middle element of each part goes at its top, so this takes
+	 * O(n) and the tree is perfectly balanced. If balanced is true the tree stays balanced as it changes.
+	 * If the elements are not in order, throws IllegalArgumentException
+	 */
+	public static <T extends Comparable<T>> MyBinarySearchTree<T> fromSorted(T[] sorted, boolean balanced) {
+		
+		for(int i = 1; i < sorted.length; i++) {
+			if(sorted[i - 1].compareTo(sorted[i]) >= 0) {
+				throw new IllegalArgumentException("Elements must be in strictly ascending order");
+			}
+		}
+		
+		MyBinarySearchTree<T> tree = new MyBinarySearchTree<T>(balanced);
+		tree.root = build(Arrays.asList(sorted).iterator(), sorted.length);
+		
+		return tree;
+		
+	}
+
+	/*
+	 * Returns a new tree holding every element which is in this tree or the other one.
+	 * Both trees are walked in order at the same time, so this is O(n + m).
+	 */
+	public MyBinarySearchTree<T> union(MyBinarySearchTree<T> other) {
+		
+		return merge(other, true, true, true);
+		
+	}
+
+	/*
+	 * Returns a new tree holding the elements which are in both this tree and the other one.
+	 */
+	public MyBinarySearchTree<T> intersect(MyBinarySearchTree<T> other) {
+		
+		return merge(other, false, true, false);
+		
+	}
+
+	/*
+	 * Returns a new tree holding the elements of this tree which are not in the other one.
+	 */
+	public MyBinarySearchTree<T> difference(MyBinarySearchTree<T> other) {
+		
+		return merge(other, true, false, false);
+		
+	}
+
+	/*
+	 * Walks both trees in order like the merge step of merge sort, keeping elements which are only
+	 * in this tree, in both trees, or only in the other tree as asked. The kept elements come out
+	 * sorted, so the new tree is then built from them in O(n + m).
+	 */
+	private MyBinarySearchTree<T> merge(MyBinarySearchTree<T> other, boolean keepThisOnly, boolean keepBoth, boolean keepOtherOnly) {
+		
+		MyLinkedList<T> kept = new MyLinkedList<T>();
+		Iterator<T> mine = new RangeIterator(null, null);
+		Iterator<T> theirs = other.new RangeIterator(null, null);
+		
+		T a = mine.hasNext() ? mine.next() : null;
+		T b = theirs.hasNext() ? theirs.next() : null;
+		
+		while(a != null || b != null) {
+			
+			int comparison = (a == null) ? 1 : (b == null) ? -1 : a.compareTo(b);
+			
+			if(comparison < 0) {
+				
+				if(keepThisOnly) {
+					kept.insertLast(a);
+				}
+				a = mine.hasNext() ? mine.next() : null;
+				
+			} else if(comparison > 0) {
+				
+				if(keepOtherOnly) {
+					kept.insertLast(b);
+				}
+				b = theirs.hasNext() ? theirs.next() : null;
+				
+			} else {
+				
+				if(keepBoth) {
+					kept.insertLast(a);
+				}
+				a = mine.hasNext() ? mine.next() : null;
+				b = theirs.hasNext() ? theirs.next() : null;
+				
+			}
+			
+		}
+		
+		MyBinarySearchTree<T> tree = new MyBinarySearchTree<T>(balanced);
+		tree.root = build(kept.iterator(), kept.getLength());
+		
+		return tree;
+		
+	}
+
+	/*
+	 * Builds a perfectly balanced subtree from the next count elements, which come out of the
+	 * iterator in order. The left half is built first so the elements are used up in order.
+	 * The recursion is only as deep as the tree, O(log(n)).
+	 */
+	private static <T> BSTNode<T> build(Iterator<T> elements, int count) {
+		
+		if(count == 0) {
+			return null;
+		}
+		
+		int leftCount = count / 2;
+		BSTNode<T> left = build(elements, leftCount);
+		
+		BSTNode<T> node = new BSTNode<T>(elements.next());
+		node.setLeft(left);
+		node.setRight(build(elements, count - leftCount - 1));
+		update(node);
+		
+		return node;
+		
+	}
+
+	/*
+	 * Inserts the element as a new leaf and then rebalances the nodes above it.
+	 */
+	private void insertBalanced(T element) {
+		
+		//Keep the path down from the root so we can walk back up it
+		MyStack<BSTNode<T>> path = new MyStack<BSTNode<T>>();
+		BSTNode<T> current = root;
+		
+		while(current != null) {
+			
+			int comparison = element.compareTo(current.getElement());
+			if(comparison == 0) {
+				
+				//Already in the tree
+				return;
+				
+			}
+			
+			path.push(current);
+			current = comparison < 0 ? current.getLeft() : current.getRight();
+			
+		}
+		
+		BSTNode<T> leaf = new BSTNode<T>(element);
+		
+		if(!path.hasNext()) {
+			
+			root = leaf;
+			
+		} else {
+			
+			BSTNode<T> parent = path.peek();
+			if(element.compareTo(parent.getElement()) < 0) {
+				parent.setLeft(leaf);
+			} else {
+				parent.setRight(leaf);
+			}
+			
+			rebalancePath(path);
+			
+		}
+		
+	}
+
+	/*
+	 * Removes the element, replacing a node with two children by its in-order successor,
+	 * and then rebalances the nodes above the one which was unlinked.
+	 */
+	private void removeBalanced(T element) {
+		
+		MyStack<BSTNode<T>> path = new MyStack<BSTNode<T>>();
+		BSTNode<T> current = root;
+		
+		while(current != null && element.compareTo(current.getElement()) != 0) {
+			path.push(current);
+			current = element.compareTo(current.getElement()) < 0 ? current.getLeft() : current.getRight();
+		}
+		
+		if(current == null) {
+			
+			//Not in the tree
+			return;
+			
+		}
+		
+		if(current.getLeft() != null && current.getRight() != null) {
+			
+			//Move the successor's element up and unlink the successor instead, it has no left child
+			path.push(current);
+			BSTNode<T> successor = current.getRight();
+			
+			while(successor.getLeft() != null) {
+				path.push(successor);
+				successor = successor.getLeft();
+			}
+			
+			current.setElement(successor.getElement());
+			current = successor;
+			
+		}
+		
+		BSTNode<T> child = current.getLeft() != null ? current.getLeft() : current.getRight();
+		replaceChild(path.hasNext() ? path.peek() : null, current, child);
+		rebalancePath(path);
+		
+	}
+
+	/*
+	 * Pops each node off the path, bottom up, fixing its height and rotating it if it is out of balance.
+	 */
+	private void rebalancePath(MyStack<BSTNode<T>> path) {
+		
+		while(path.hasNext()) {
+			
+			BSTNode<T> node = path.pop();
+			BSTNode<T> newNode = rebalance(node);
+			
+			if(newNode != node) {
+				replaceChild(path.hasNext() ? path.peek() : null, node, newNode);
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Updates the node's height and size and returns the root of its subtree after any rotations needed.
+	 */
+	private BSTNode<T> rebalance(BSTNode<T> node) {
+		
+		update(node);
+		int balance = heightOf(node.getLeft()) - heightOf(node.getRight());
+		
+		if(balance > 1) {
+			
+			//Left heavy, a left-right shape needs the left child rotated first
+			if(heightOf(node.getLeft().getLeft()) < heightOf(node.getLeft().getRight())) {
+				node.setLeft(rotateLeft(node.getLeft()));
+			}
+			return rotateRight(node);
+			
+		} else if(balance < -1) {
+			
+			//Right heavy, a right-left shape needs the right child rotated first
+			if(heightOf(node.getRight().getRight()) < heightOf(node.getRight().getLeft())) {
+				node.setRight(rotateRight(node.getRight()));
+			}
+			return rotateLeft(node);
+			
+		}
+		
+		return node;
+		
+	}
+
+	/*
+	 * Lifts the node's left child into its place and returns it.
+	 */
+	private BSTNode<T> rotateRight(BSTNode<T> node) {
+		
+		BSTNode<T> left = node.getLeft();
+		node.setLeft(left.getRight());
+		left.setRight(node);
+		
+		update(node);
+		update(left);
+		
+		return left;
+		
+	}
+
+	/*
+	 * Lifts the node's right child into its place and returns it.
+	 */
+	private BSTNode<T> rotateLeft(BSTNode<T> node) {
+		
+		BSTNode<T> right = node.getRight();
+		node.setRight(right.getLeft());
+		right.setLeft(node);
+		
+		update(node);
+		update(right);
+		
+		return right;
+		
+	}
+
+	private void replaceChild(BSTNode<T> parent, BSTNode<T> oldChild, BSTNode<T> newChild) {
+		
+		if(parent == null) {
+			root = newChild;
+		} else if(parent.getLeft() == oldChild) {
+			parent.setLeft(newChild);
+		} else {
+			parent.setRight(newChild);
+		}
+		
+	}
+
+	private static void update(BSTNode<?> node) {
+		
+		node.setHeight(Math.max(heightOf(node.getLeft()), heightOf(node.getRight())) + 1);
+		node.setSize(sizeOf(node.getLeft()) + sizeOf(node.getRight()) + 1);
+		
+	}
+
+	private static int heightOf(BSTNode<?> node) {
+		
+		return node == null ? 0 : node.getHeight();
+		
+	}
+
+	private static int sizeOf(BSTNode<?> node) {
+		
+		return node == null ? 0 : node.getSize();
+		
+	}
+
+	/*
+	 * Adds delta to the size of every node on the path from the root down to element's node.
+	 */
+	private void adjustSizes(T element, int delta) {
+		
+		BSTNode<T> current = root;
+		
+		while(current != null) {
+			
+			current.setSize(current.getSize() + delta);
+			
+			int comparison = element.compareTo(current.getElement());
+			if(comparison == 0) {
+				return;
+			}
+			
+			current = comparison < 0 ? current.getLeft() : current.getRight();
+			
+		}
+		
+	}
+
+	/*
+	 * In-order iterator which starts at low. The stack holds the nodes whose left side has
+	 * been dealt with but which haven't been returned yet, smallest on top.
+	 * A null low or high leaves the range open at that end.
+	 */
+	private class RangeIterator implements Iterator<T> {
+		
+		private final T high;
+		private final MyStack<BSTNode<T>> stack;
+		
+		RangeIterator(T low, T high) {
+			
+			this.high = high;
+			stack = newPathStack();
+			
+			//Push the path down to low, leaving out the nodes which are below it
+			BSTNode<T> current = root;
+			while(current != null) {
+				
+				if(low != null && current.getElement().compareTo(low) < 0) {
+					current = current.getRight();
+				} else {
+					stack.push(current);
+					current = current.getLeft();
+				}
+				
+			}
+			
+		}
+		
+		public boolean hasNext() {
+			
+			return stack.hasNext() && (high == null || stack.peek().getElement().compareTo(high) <= 0);
+			
+		}
+		
+		public T next() {
+			
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			BSTNode<T> node = stack.pop();
+			
+			//The next elements are the left most path of the right subtree
+			for(BSTNode<T> current = node.getRight(); current != null; current = current.getLeft()) {
+				stack.push(current);
+			}
+			
+			return node.getElement();
+			
+		}
+		
+	}
+
+	/*
+	 * Iterator over the whole tree. The stack holds the path of nodes still to be returned,
+	 * next on top, so it never holds more than the height of the tree. Going backwards is
+	 * the same walk with left and right swapped.
+	 */
+	private class TreeIterator implements Iterator<T> {
+		
+		private final boolean descending;
+		private final MyStack<BSTNode<T>> stack;
+		
+		TreeIterator(boolean descending) {
+			
+			this.descending = descending;
+			stack = newPathStack();
+			pushPath(root);
+			
+		}
+		
+		public boolean hasNext() {
+			
+			return stack.hasNext();
+			
+		}
+		
+		public T next() {
+			
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			BSTNode<T> node = stack.pop();
+			pushPath(descending ? node.getLeft() : node.getRight());
+			
+			return node.getElement();
+			
+		}
+		
+		/*
+		 * Pushes node and its left most path, or right most path when descending.
+		 */
+		private void pushPath(BSTNode<T> node) {
+			
+			while(node != null) {
+				stack.push(node);
+				node = descending ? node.getRight() : node.getLeft();
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Spliterator over an optional head node (just its element, which comes first) followed by a
+	 * whole subtree. Splitting hands the head and the subtree's left side to the new spliterator
+	 * and keeps the subtree's root as the new head with its right side, so both halves stay in
+	 * order and their sizes are known exactly from the node sizes. Once it starts walking it
+	 * turns into an in-order stack walk and stops splitting.
+	 */
+	private class TreeSpliterator implements Spliterator<T> {
+		
+		private BSTNode<T> head;
+		private BSTNode<T> subtree;
+		private MyStack<BSTNode<T>> stack;
+		private long remaining;
+		
+		TreeSpliterator(BSTNode<T> head, BSTNode<T> subtree) {
+			
+			this.head = head;
+			this.subtree = subtree;
+			remaining = (head == null ? 0 : 1) + sizeOf(subtree);
+			
+		}
+		
+		public boolean tryAdvance(Consumer<? super T> action) {
+			
+			if(head != null) {
+				
+				T element = head.getElement();
+				head = null;
+				remaining--;
+				action.accept(element);
+				return true;
+				
+			}
+			
+			if(stack == null) {
+				stack = newPathStack();
+				pushLeftPath(subtree);
+				subtree = null;
+			}
+			
+			if(!stack.hasNext()) {
+				return false;
+			}
+			
+			BSTNode<T> node = stack.pop();
+			pushLeftPath(node.getRight());
+			remaining--;
+			action.accept(node.getElement());
+			
+			return true;
+			
+		}
+		
+		public Spliterator<T> trySplit() {
+			
+			if(stack != null) {
+				return null;
+			}
+			
+			//Without a head or a left side there is nothing to hand off, so move down the right
+			while(subtree != null && head == null && subtree.getLeft() == null) {
+				head = subtree;
+				subtree = subtree.getRight();
+			}
+			
+			if(subtree == null) {
+				return null;
+			}
+			
+			TreeSpliterator prefix = new TreeSpliterator(head, subtree.getLeft());
+			head = subtree;
+			subtree = subtree.getRight();
+			remaining -= prefix.remaining;
+			
+			return prefix;
+			
+		}
+		
+		public long estimateSize() {
+			
+			return remaining;
+			
+		}
+		
+		public int characteristics() {
+			
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+			
+		}
+		
+		public Comparator<? super T> getComparator() {
+			
+			//Sorted by the elements' natural order
+			return null;
+			
+		}
+		
+		private void pushLeftPath(BSTNode<T> node) {
+			
+			while(node != null) {
+				stack.push(node);
+				node = node.getLeft();
+			}
+			
+		}
+		
+	}
+
 }
@@ -0,0 +1,223 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue which threads can wait on. It wraps a bounded MyQueue and guards it with a lock:
+ * take waits until there is an element and put waits until there is room, instead of the caller
+ * having to spin on hasNext. Waiting uses a ReentrantLock and its conditions rather than
+ * synchronized and wait/notify, which lets virtual threads unmount while they wait instead of
+ * pinning their carrier thread.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+public class MyBlockingQueue<T> {
+	
+	private final MyQueue<T> queue;
+	private final ReentrantLock lock;
+	private final Condition notEmpty;
+	private final Condition notFull;
+	
+	/*
+	 * Creates a queue which holds at most capacity elements.
+	 */
+	public MyBlockingQueue(int capacity) {
+		
+		queue = new MyQueue<T>(capacity);
+		lock = new ReentrantLock();
+		notEmpty = lock.newCondition();
+		notFull = lock.newCondition();
+		
+	}
+
+	/*
+	 * Adds the element to the end of the queue, waiting for room if it is full.
+	 */
+	public void put(T element) throws InterruptedException {
+		
+		lock.lockInterruptibly();
+		try {
+			
+			while(queue.isFull()) {
+				notFull.await();
+			}
+			
+			queue.enqueue(element);
+			notEmpty.signal();
+			
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Adds the element to the end of the queue if there is room, returns false if it is full.
+	 */
+	public boolean offer(T element) {
+		
+		lock.lock();
+		try {
+			
+			if(!queue.offer(element)) {
+				return false;
+			}
+			
+			notEmpty.signal();
+			return true;
+			
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Removes and returns the first element, waiting for one if the queue is empty.
+	 */
+	public T take() throws InterruptedException {
+		
+		lock.lockInterruptibly();
+		try {
+			
+			while(!queue.hasNext()) {
+				notEmpty.await();
+			}
+			
+			return dequeue();
+			
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Removes and returns the first element, waiting up to the given time for one.
+	 * Returns null if the time runs out first.
+	 */
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		
+		long nanos = unit.toNanos(timeout);
+		
+		lock.lockInterruptibly();
+		try {
+			
+			while(!queue.hasNext()) {
+				
+				if(nanos <= 0) {
+					return null;
+				}
+				
+				nanos = notEmpty.awaitNanos(nanos);
+				
+			}
+			
+			return dequeue();
+			
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Removes and returns the first element, or returns null straight away if the queue is empty.
+	 */
+	public T poll() {
+		
+		lock.lock();
+		try {
+			
+			return queue.hasNext() ? dequeue() : null;
+			
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Waits until there is at least one element, then removes up to max elements in one go
+	 * and returns them in queue order.
+	 */
+	public MyLinkedList<T> takeAll(int max) throws InterruptedException {
+		
+		if(max <= 0) {
+			throw new IllegalArgumentException("Must take at least one element");
+		}
+		
+		MyLinkedList<T> taken = new MyLinkedList<T>();
+		
+		lock.lockInterruptibly();
+		try {
+			
+			while(!queue.hasNext()) {
+				notEmpty.await();
+			}
+			
+			while(queue.hasNext() && taken.getLength() < max) {
+				taken.insertLast(queue.dequeue());
+			}
+			
+			//Several slots may have freed up so wake every waiting producer
+			notFull.signalAll();
+			
+		} finally {
+			lock.unlock();
+		}
+		
+		return taken;
+		
+	}
+
+	/*
+	 * Returns the number of items in the queue.
+	 */
+	public int size() {
+		
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Returns true if the Queue contains an element.
+	 */
+	public boolean hasNext() {
+		
+		return size() > 0;
+		
+	}
+
+	/*
+	 * Returns the string implementation of the queue.
+	 */
+	public String toString() {
+		
+		lock.lock();
+		try {
+			return queue.toString();
+		} finally {
+			lock.unlock();
+		}
+		
+	}
+
+	/*
+	 * Takes the first element off the queue and wakes a producer. The lock must be held.
+	 */
+	private T dequeue() {
+		
+		T element = queue.dequeue();
+		notFull.signal();
+		return element;
+		
+	}
+
+}
@@ -0,0 +1,95 @@
+import java.util.Arrays;
+
+/**
+ * A stack of boolean values. It works the same way as MyStack but keeps the values in a boolean
+ * array, so pushing and popping never box a value or create an object.
+ * @author Andrew
+ *
+ */
+
+public class MyBooleanStack {
+	
+	private boolean[] stack;
+	private int size;
+	
+	public MyBooleanStack() {
+		this(16);
+	}
+
+	/*
+	 * Creates a stack with room for initialCapacity values before it needs to grow.
+	 */
+	public MyBooleanStack(int initialCapacity) {
+		
+		stack = new boolean[Math.max(initialCapacity, 1)];
+		size = 0;
+		
+	}
+
+	/*
+	 * Add the value to the top of the stack.
+	 */
+	public void push(boolean value) {
+		
+		if(size == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		
+		stack[size++] = value;
+		
+	}
+
+	/*
+	 * Remove a value from the top of the stack.
+	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
+	 */
+	public boolean pop() {
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return stack[--size];
+		
+	}
+
+	/*
+	 * Returns the string implementation of the stack.
+	 */
+	public String toString() {
+		
+		if(size == 0) {
+			return "empty";
+		}
+		
+		//List from the top of the stack down, the buffer is sized for the longest possible values
+		StringBuilder builder = new StringBuilder(size * 7);
+		builder.append(stack[size - 1]);
+		
+		for(int i = size - 2; i >= 0; i--) {
+			builder.append(", ").append(stack[i]);
+		}
+		
+		return builder.toString();
+		
+	}
+
+	/*
+	 * Returns true if there is a value on the stack
+	 */
+	public boolean hasNext() {
+		
+		return size > 0;
+		
+	}
+
+	/*
+	 * Returns the number of values on the stack
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+}
@@ -0,0 +1,433 @@
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A bounded cache which keeps the most useful key value pairs and throws the rest away.
+ * The pairs are kept in a MyOpenHashTable for O(1) look-up, and every pair's node is also part
+ * of a doubly linked list ordered by how recently it was used. Getting a pair moves it to the
+ * front of the list, and when the cache is too big the pair at the back (the least recently used)
+ * is evicted. Because the list pointers live in the cache nodes themselves, get, add and evict
+ * are all O(1) and never need to copy the keys.
+ * The size of the cache can be bounded by the number of pairs or by a total weight, where a
+ * weigher works out the weight of each pair.
+ * Optionally the cache can also use frequency based admission (TinyLFU). A small sketch counts
+ * roughly how often each key has been asked for, and a new pair is only let in at the expense
+ * of the least recently used pair if it has been asked for more often. This stops one off
+ * look-ups from flushing out pairs which are used all the time.
+ * @author Andrew
+ *
+ * @param <K>
+ * @param <V>
+ */
+
+public class MyCache<K, V> {
+	
+	private final MyOpenHashTable<K, CacheNode<K, V>> table;
+	private final ToIntBiFunction<? super K, ? super V> weigher;
+	private final long maximumWeight;
+	private final FrequencySketch sketch;
+	
+	//Sentinel node, head.next is the most recently used and head.prev the least
+	private final CacheNode<K, V> head;
+	private long weight;
+	
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	
+	/*
+	 * Creates a least recently used cache holding at most maximumSize pairs.
+	 */
+	public MyCache(int maximumSize) {
+		
+		this(maximumSize, (k, v) -> 1, false);
+		
+	}
+
+	/*
+	 * Creates a cache whose pairs' weights add up to at most maximumWeight. If frequencyAdmission
+	 * is true new pairs only displace old ones when they are asked for more often.
+	 */
+	public MyCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher, boolean frequencyAdmission) {
+		
+		if(maximumWeight <= 0) {
+			throw new IllegalArgumentException("Maximum weight must be positive");
+		}
+		
+		if(weigher == null) {
+			throw new NullPointerException("Weigher must not be null");
+		}
+		
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		table = new MyOpenHashTable<K, CacheNode<K, V>>();
+		
+		if(frequencyAdmission) {
+			sketch = new FrequencySketch((int) Math.min(maximumWeight, 1 << 22));
+		} else {
+			sketch = null;
+		}
+		
+		head = new CacheNode<K, V>(null, null, 0);
+		head.next = head;
+		head.prev = head;
+		weight = 0;
+		
+	}
+
+	/*
+	 * Returns the value for the given key, or null if it is not in the cache.
+	 * A hit marks the pair as the most recently used.
+	 */
+	public V get(K key) {
+		
+		if(sketch != null) {
+			sketch.increment(key);
+		}
+		
+		CacheNode<K, V> node = table.get(key);
+		
+		if(node == null) {
+			missCount++;
+			return null;
+		}
+		
+		hitCount++;
+		unlink(node);
+		linkFirst(node);
+		return node.value;
+		
+	}
+
+	/*
+	 * Returns true if the key is in the cache. Does not count as a use of the pair.
+	 */
+	public boolean contains(K key) {
+		
+		return table.contains(key);
+		
+	}
+
+	/*
+	 * Adds the given pair to the cache, replacing the value if the key is already present,
+	 * and then evicts pairs until the cache is back under its bound.
+	 * A pair which is heavier than the whole cache is never stored.
+	 */
+	public void add(K key, V value) {
+		
+		int pairWeight = weigher.applyAsInt(key, value);
+		
+		if(pairWeight < 0) {
+			throw new IllegalArgumentException("Weights must not be negative");
+		}
+		
+		if(pairWeight > maximumWeight) {
+			
+			//Storing it would flush the whole cache, drop any old value instead
+			remove(key);
+			return;
+			
+		}
+		
+		CacheNode<K, V> node = table.get(key);
+		boolean isNew = node == null;
+		
+		if(!isNew) {
+			
+			//Replace the existing value in place
+			weight += pairWeight - node.weight;
+			node.value = value;
+			node.weight = pairWeight;
+			unlink(node);
+			linkFirst(node);
+			
+		} else {
+			
+			if(sketch != null) {
+				sketch.increment(key);
+			}
+			
+			node = new CacheNode<K, V>(key, value, pairWeight);
+			table.add(key, node);
+			linkFirst(node);
+			weight += pairWeight;
+			
+		}
+		
+		evict(node, isNew);
+		
+	}
+
+	/*
+	 * Removes the given key from the cache if it is there.
+	 */
+	public void remove(K key) {
+		
+		CacheNode<K, V> node = table.get(key);
+		
+		if(node != null) {
+			table.remove(key);
+			unlink(node);
+			weight -= node.weight;
+		}
+		
+	}
+
+	/*
+	 * Returns the number of pairs in the cache.
+	 */
+	public int size() {
+		
+		return table.size();
+		
+	}
+
+	/*
+	 * Returns the total weight of the pairs in the cache.
+	 */
+	public long getWeight() {
+		
+		return weight;
+		
+	}
+
+	/*
+	 * Returns the number of gets which found their key.
+	 */
+	public long getHitCount() {
+		
+		return hitCount;
+		
+	}
+
+	/*
+	 * Returns the number of gets which did not find their key.
+	 */
+	public long getMissCount() {
+		
+		return missCount;
+		
+	}
+
+	/*
+	 * Returns the number of pairs thrown out to keep the cache under its bound,
+	 * including new pairs which were refused by frequency admission.
+	 */
+	public long getEvictionCount() {
+		
+		return evictionCount;
+		
+	}
+
+	/*
+	 * Returns the keys from most to least recently used.
+	 */
+	public MyLinkedList<K> getKeys() {
+		
+		MyLinkedList<K> keys = new MyLinkedList<K>();
+		
+		for(CacheNode<K, V> node = head.next; node != head; node = node.next) {
+			keys.insertLast(node.key);
+		}
+		
+		return keys;
+		
+	}
+
+	/*
+	 * Evicts pairs from the back of the list until the weight fits. The candidate is the pair
+	 * which has just been added or updated. With admission turned on a newly added candidate
+	 * has to beat the frequency of every pair it would push out to stay, and that is decided
+	 * before anything is evicted, so a candidate which loses never costs the cache other pairs.
+	 */
+	private void evict(CacheNode<K, V> candidate, boolean isNew) {
+		
+		if(isNew && sketch != null && weight > maximumWeight && !admit(candidate)) {
+			
+			//The new pair isn't used as often as the pairs it would push out
+			discard(candidate);
+			return;
+			
+		}
+		
+		while(weight > maximumWeight) {
+			
+			CacheNode<K, V> victim = head.prev;
+			
+			if(victim == candidate) {
+				
+				//Only the candidate is left, it is too heavy to keep
+				discard(candidate);
+				return;
+				
+			}
+			
+			discard(victim);
+			
+		}
+		
+	}
+
+	/*
+	 * Walks back from the least recently used pair over the victims which would have to go to make
+	 * room for the candidate, and returns true if the candidate is asked for more often than all of them.
+	 */
+	private boolean admit(CacheNode<K, V> candidate) {
+		
+		int candidateFrequency = sketch.frequency(candidate.key);
+		long excess = weight - maximumWeight;
+		
+		for(CacheNode<K, V> victim = head.prev; excess > 0; victim = victim.prev) {
+			
+			if(victim == candidate || victim == head) {
+				
+				//Nothing else left to evict, the candidate can't fit
+				return false;
+				
+			}
+			
+			if(candidateFrequency <= sketch.frequency(victim.key)) {
+				return false;
+			}
+			
+			excess -= victim.weight;
+			
+		}
+		
+		return true;
+		
+	}
+
+	private void discard(CacheNode<K, V> node) {
+		
+		table.remove(node.key);
+		unlink(node);
+		weight -= node.weight;
+		evictionCount++;
+		
+	}
+
+	private void linkFirst(CacheNode<K, V> node) {
+		
+		node.prev = head;
+		node.next = head.next;
+		head.next.prev = node;
+		head.next = node;
+		
+	}
+
+	private void unlink(CacheNode<K, V> node) {
+		
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+		
+	}
+
+	private static final class CacheNode<K, V> {
+		
+		final K key;
+		V value;
+		int weight;
+		CacheNode<K, V> prev;
+		CacheNode<K, V> next;
+		
+		CacheNode(K key, V value, int weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+		
+	}
+
+	/*
+	 * A count-min sketch of 4 bit counters, four counters per key, packed sixteen to a long.
+	 * The frequency of a key is the smallest of its four counters. Once enough increments have
+	 * happened every counter is halved, so keys which were popular a long time ago fade away.
+	 */
+	private static final class FrequencySketch {
+		
+		private static final long RESET_MASK = 0x7777777777777777L;
+		private static final int[] SEEDS = { 0x97CB3127, 0xB0D4F7E5, 0x5AD48F27, 0x2C5F28A1 };
+		
+		private final long[] table;
+		private final int tableMask;
+		private final int sampleSize;
+		private int additions;
+		
+		FrequencySketch(int expectedKeys) {
+			
+			int capacity = 64;
+			while(capacity < expectedKeys && capacity < (1 << 24)) {
+				capacity *= 2;
+			}
+			
+			table = new long[capacity];
+			tableMask = capacity - 1;
+			sampleSize = 10 * capacity;
+			
+		}
+		
+		int frequency(Object key) {
+			
+			int hash = spread(key.hashCode());
+			int frequency = Integer.MAX_VALUE;
+			
+			for(int i = 0; i < 4; i++) {
+				
+				int h = hash * SEEDS[i];
+				int index = (h >>> 8) & tableMask;
+				int offset = (h & 15) << 2;
+				int count = (int) ((table[index] >>> offset) & 15L);
+				frequency = Math.min(frequency, count);
+				
+			}
+			
+			return frequency;
+			
+		}
+		
+		void increment(Object key) {
+			
+			int hash = spread(key.hashCode());
+			boolean added = false;
+			
+			for(int i = 0; i < 4; i++) {
+				
+				int h = hash * SEEDS[i];
+				int index = (h >>> 8) & tableMask;
+				int offset = (h & 15) << 2;
+				
+				if(((table[index] >>> offset) & 15L) != 15L) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+				
+			}
+			
+			if(added && ++additions == sampleSize) {
+				reset();
+			}
+			
+		}
+		
+		private void reset() {
+			
+			for(int i = 0; i < table.length; i++) {
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			}
+			
+			additions /= 2;
+			
+		}
+		
+		private static int spread(int h) {
+			
+			h *= 0x9E3779B9;
+			return h ^ (h >>> 16);
+			
+		}
+		
+	}
+
+}
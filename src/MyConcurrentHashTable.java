@@ -0,0 +1,450 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A hash table which can be shared between threads. The table is split into a number of
+ * segments and each key is sent to a segment by its hash. Every segment is a small chained
+ * hash table with its own lock, so writers only block each other when they touch the same
+ * segment, and each segment grows on its own when it gets too full.
+ * Readers never take a lock. The chains are made of nodes whose key and next pointer never
+ * change once published, so a reader always sees a consistent chain: a writer either swaps in
+ * a whole new bucket head (add, resize) or copies the part of the chain in front of a removed
+ * node (remove). Values are volatile so a replaced value is seen straight away.
+ * getKeys, getValues and size are weakly consistent while writers are active.
+ * @author Andrew
+ *
+ * @param <K>
+ * @param <V>
+ */
+
+public class MyConcurrentHashTable<K, V> {
+	
+	private static final int DEFAULT_SEGMENTS = 16;
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private final Segment<K, V>[] segments;
+	private final int segmentShift;
+	
+	public MyConcurrentHashTable() {
+		
+		this(DEFAULT_CAPACITY, DEFAULT_SEGMENTS);
+		
+	}
+
+	/*
+	 * Creates a table sized for expectedElements and split into at least concurrencyLevel
+	 * segments, i.e. roughly the number of threads expected to write at the same time.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public MyConcurrentHashTable(int expectedElements, int concurrencyLevel) {
+		
+		if(expectedElements < 0 || concurrencyLevel <= 0) {
+			throw new IllegalArgumentException("Invalid table size or concurrency level");
+		}
+		
+		//Round the segment count up to a power of two so the top hash bits pick a segment
+		int segmentCount = 1;
+		int bits = 0;
+		while(segmentCount < concurrencyLevel && segmentCount < (1 << 16)) {
+			segmentCount *= 2;
+			bits++;
+		}
+		
+		segmentShift = 32 - bits;
+		segments = (Segment<K, V>[]) new Segment[segmentCount];
+		
+		int perSegment = 2;
+		while(perSegment * segmentCount * LOAD_FACTOR < expectedElements && perSegment < (1 << 30)) {
+			perSegment *= 2;
+		}
+		
+		for(int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment<K, V>(perSegment);
+		}
+		
+	}
+
+	/*
+	 * Adds the given key value pair to the hash table, replacing the value if the key
+	 * is already present.
+	 */
+	public void add(K key, V value) {
+		
+		checkNotNull(key, value);
+		int hash = hash(key);
+		segmentFor(hash).put(key, hash, value, false);
+		
+	}
+
+	/*
+	 * Adds the pair only if the key is not already present. Returns the value that was
+	 * already there, or null if the pair was added.
+	 */
+	public V putIfAbsent(K key, V value) {
+		
+		checkNotNull(key, value);
+		int hash = hash(key);
+		return segmentFor(hash).put(key, hash, value, true);
+		
+	}
+
+	/*
+	 * Returns the value for key, first computing it with the given function and adding it
+	 * if the key is not present. The function is called at most once per missing key and while
+	 * the key's segment is locked, so it should be short and must not use this table.
+	 * If the function returns null nothing is added and null is returned.
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		
+		if(key == null || mappingFunction == null) {
+			throw new NullPointerException();
+		}
+		
+		int hash = hash(key);
+		Segment<K, V> segment = segmentFor(hash);
+		
+		//Lock free fast path for the common case where the key is already there
+		V value = segment.get(key, hash);
+		if(value != null) {
+			return value;
+		}
+		
+		return segment.computeIfAbsent(key, hash, mappingFunction);
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to in the hash table.
+	 */
+	public V get(K key) {
+		
+		int hash = hash(key);
+		return segmentFor(hash).get(key, hash);
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(K key) {
+		
+		return get(key) != null;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(K key) {
+		
+		int hash = hash(key);
+		segmentFor(hash).remove(key, hash);
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		long total = 0;
+		for(Segment<K, V> segment: segments) {
+			total += segment.count;
+		}
+		
+		return (int) Math.min(total, Integer.MAX_VALUE);
+		
+	}
+
+	/*
+	 * Returns a linked list of all the keys in the hash table
+	 */
+	public MyLinkedList<K> getKeys() {
+		
+		MyLinkedList<K> keys = new MyLinkedList<K>();
+		
+		for(Segment<K, V> segment: segments) {
+			
+			AtomicReferenceArray<Node<K, V>> table = segment.table;
+			for(int i = 0; i < table.length(); i++) {
+				for(Node<K, V> node = table.get(i); node != null; node = node.next) {
+					keys.insert(node.key);
+				}
+			}
+			
+		}
+		
+		return keys;
+		
+	}
+
+	/*
+	 * Returns a linked list of all the values in the hash table
+	 */
+	public MyLinkedList<V> getValues() {
+		
+		MyLinkedList<V> values = new MyLinkedList<V>();
+		
+		for(Segment<K, V> segment: segments) {
+			
+			AtomicReferenceArray<Node<K, V>> table = segment.table;
+			for(int i = 0; i < table.length(); i++) {
+				for(Node<K, V> node = table.get(i); node != null; node = node.next) {
+					values.insert(node.value);
+				}
+			}
+			
+		}
+		
+		return values;
+		
+	}
+
+	/*
+	 * Prints a list of all the key value pairs in the table
+	 */
+	public void printTable() {
+		
+		for(Segment<K, V> segment: segments) {
+			
+			AtomicReferenceArray<Node<K, V>> table = segment.table;
+			for(int i = 0; i < table.length(); i++) {
+				for(Node<K, V> node = table.get(i); node != null; node = node.next) {
+					System.out.print("[" + node.key.toString() + ":" + node.value.toString() + "] ");
+				}
+			}
+			
+		}
+		
+		System.out.println();
+		
+	}
+
+	private Segment<K, V> segmentFor(int hash) {
+		
+		//An unsigned shift by 32 leaves the hash unchanged, so handle a single segment separately
+		if(segments.length == 1) {
+			return segments[0];
+		}
+		
+		return segments[hash >>> segmentShift];
+		
+	}
+
+	/*
+	 * Spreads the hash code so that both the top bits (segment) and the low bits (bucket) are well mixed.
+	 */
+	private static int hash(Object key) {
+		
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+		
+	}
+
+	private static void checkNotNull(Object key, Object value) {
+		
+		if(key == null || value == null) {
+			throw new NullPointerException("Keys and values must not be null");
+		}
+		
+	}
+
+	/*
+	 * One lock protected part of the table. All writes happen while holding the lock,
+	 * reads go straight to the volatile table.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends ReentrantLock {
+		
+		volatile AtomicReferenceArray<Node<K, V>> table;
+		volatile int count;
+		private int threshold;
+		
+		Segment(int capacity) {
+			
+			setTable(new AtomicReferenceArray<Node<K, V>>(capacity));
+			
+		}
+		
+		V get(K key, int hash) {
+			
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			Node<K, V> node = tab.get(hash & (tab.length() - 1));
+			
+			while(node != null) {
+				
+				if(node.hash == hash && node.key.equals(key)) {
+					return node.value;
+				}
+				
+				node = node.next;
+				
+			}
+			
+			return null;
+			
+		}
+		
+		V put(K key, int hash, V value, boolean onlyIfAbsent) {
+			
+			lock();
+			try {
+				
+				AtomicReferenceArray<Node<K, V>> tab = table;
+				int index = hash & (tab.length() - 1);
+				Node<K, V> first = tab.get(index);
+				
+				for(Node<K, V> node = first; node != null; node = node.next) {
+					
+					if(node.hash == hash && node.key.equals(key)) {
+						
+						V oldValue = node.value;
+						if(!onlyIfAbsent) {
+							node.value = value;
+						}
+						return oldValue;
+						
+					}
+					
+				}
+				
+				//Not found, publish a new head for this bucket
+				tab.set(index, new Node<K, V>(key, hash, value, first));
+				count++;
+				
+				if(count > threshold) {
+					rehash();
+				}
+				
+				return null;
+				
+			} finally {
+				unlock();
+			}
+			
+		}
+		
+		V computeIfAbsent(K key, int hash, Function<? super K, ? extends V> mappingFunction) {
+			
+			lock();
+			try {
+				
+				//Someone may have added the key since the lock free check
+				V value = get(key, hash);
+				if(value != null) {
+					return value;
+				}
+				
+				value = mappingFunction.apply(key);
+				if(value == null) {
+					return null;
+				}
+				
+				AtomicReferenceArray<Node<K, V>> tab = table;
+				int index = hash & (tab.length() - 1);
+				tab.set(index, new Node<K, V>(key, hash, value, tab.get(index)));
+				count++;
+				
+				if(count > threshold) {
+					rehash();
+				}
+				
+				return value;
+				
+			} finally {
+				unlock();
+			}
+			
+		}
+		
+		void remove(K key, int hash) {
+			
+			lock();
+			try {
+				
+				AtomicReferenceArray<Node<K, V>> tab = table;
+				int index = hash & (tab.length() - 1);
+				Node<K, V> first = tab.get(index);
+				
+				Node<K, V> target = first;
+				while(target != null && !(target.hash == hash && target.key.equals(key))) {
+					target = target.next;
+				}
+				
+				if(target == null) {
+					return;
+				}
+				
+				//Nodes after the target can be shared, the ones in front need copying
+				//because their next pointers can't change under a reader's feet
+				Node<K, V> newFirst = target.next;
+				for(Node<K, V> node = first; node != target; node = node.next) {
+					newFirst = new Node<K, V>(node.key, node.hash, node.value, newFirst);
+				}
+				
+				tab.set(index, newFirst);
+				count--;
+				
+			} finally {
+				unlock();
+			}
+			
+		}
+		
+		/*
+		 * Doubles the segment's table. Readers keep using the old table (which is left
+		 * untouched) until the new one is published.
+		 */
+		private void rehash() {
+			
+			AtomicReferenceArray<Node<K, V>> oldTable = table;
+			int newCapacity = oldTable.length() * 2;
+			
+			if(newCapacity > (1 << 30)) {
+				return;
+			}
+			
+			AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<Node<K, V>>(newCapacity);
+			int newMask = newCapacity - 1;
+			
+			for(int i = 0; i < oldTable.length(); i++) {
+				
+				for(Node<K, V> node = oldTable.get(i); node != null; node = node.next) {
+					int index = node.hash & newMask;
+					newTable.set(index, new Node<K, V>(node.key, node.hash, node.value, newTable.get(index)));
+				}
+				
+			}
+			
+			setTable(newTable);
+			
+		}
+		
+		private void setTable(AtomicReferenceArray<Node<K, V>> newTable) {
+			
+			threshold = (int) (newTable.length() * LOAD_FACTOR);
+			table = newTable;
+			
+		}
+		
+	}
+
+	private static final class Node<K, V> {
+		
+		final K key;
+		final int hash;
+		volatile V value;
+		final Node<K, V> next;
+		
+		Node(K key, int hash, V value, Node<K, V> next) {
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+			this.next = next;
+		}
+		
+	}
+
+}
@@ -0,0 +1,464 @@
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An ordered set which can be shared between threads without any locks, built as a skip list.
+ * It holds the same kind of elements as MyBinarySearchTree and answers the same questions
+ * (insert, contains, remove) as well as floor, ceiling and in-order iteration.
+ * Every node is in the bottom level linked list, and each level above skips over about half of
+ * the nodes in the level below, so searches are O(log n) expected. Each forward link is an
+ * AtomicMarkableReference. To remove a node its links are first marked, top level down, which
+ * stops anything new being linked after it; the thread whose mark lands on the bottom link is the
+ * one which removed the element. Any thread which later walks past a marked node unlinks it with a
+ * compare-and-set, so removal never has to wait for anyone.
+ * Readers never change anything: contains, floor, ceiling and iterators just step over marked
+ * nodes. Iterators are weakly consistent, they never throw ConcurrentModificationException and
+ * may or may not see changes made while they are running. size is only exact when no writers
+ * are active.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+
+public class MyConcurrentSkipList<T extends Comparable<T>> implements Iterable<T> {
+	
+	private static final int MAX_LEVEL = 24;
+	
+	//Sentinel with every level and no element, a null link means the end of that level
+	private final Node<T> head;
+	private final LongAdder size;
+	
+	public MyConcurrentSkipList() {
+		
+		head = new Node<T>(null, MAX_LEVEL);
+		size = new LongAdder();
+		
+	}
+
+	/*
+	 * Inserts the given element. Returns false if it was already in the set.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public boolean insert(T element) {
+		
+		checkNotNull(element);
+		
+		Node<T>[] preds = new Node[MAX_LEVEL];
+		Node<T>[] succs = new Node[MAX_LEVEL];
+		int topLevel = randomLevel();
+		
+		while(true) {
+			
+			if(find(element, preds, succs)) {
+				return false;
+			}
+			
+			Node<T> node = new Node<T>(element, topLevel);
+			for(int level = 0; level < topLevel; level++) {
+				node.next[level].set(succs[level], false);
+			}
+			
+			//The element is in the set once it is linked into the bottom level
+			if(!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+				continue;
+			}
+			
+			size.increment();
+			
+			//Link the upper levels, which only make searches faster
+			for(int level = 1; level < topLevel; level++) {
+				
+				while(true) {
+					
+					Node<T> succ = succs[level];
+					boolean[] marked = { false };
+					Node<T> current = node.next[level].get(marked);
+					
+					//If the node has been marked for removal in the meantime there's no point linking it
+					if(marked[0] || (current != succ && !node.next[level].compareAndSet(current, succ, false, false))) {
+						return true;
+					}
+					
+					if(preds[level].next[level].compareAndSet(succ, node, false, false)) {
+						break;
+					}
+					
+					//Something changed around the node, search again for where it goes
+					find(element, preds, succs);
+					if(succs[0] != node) {
+						return true;
+					}
+					
+				}
+				
+			}
+			
+			return true;
+			
+		}
+		
+	}
+
+	/*
+	 * Returns whether or not the given element is in the set.
+	 */
+	public boolean contains(T element) {
+		
+		checkNotNull(element);
+		
+		Node<T> node = firstAtLeast(element);
+		return node != null && node.element.compareTo(element) == 0;
+		
+	}
+
+	/*
+	 * Removes the given element. Returns false if it was not in the set.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public boolean remove(T element) {
+		
+		checkNotNull(element);
+		
+		Node<T>[] preds = new Node[MAX_LEVEL];
+		Node<T>[] succs = new Node[MAX_LEVEL];
+		
+		if(!find(element, preds, succs)) {
+			return false;
+		}
+		
+		Node<T> victim = succs[0];
+		boolean[] marked = { false };
+		
+		//Mark the upper levels first so the node can't gain new links above the bottom
+		for(int level = victim.next.length - 1; level > 0; level--) {
+			
+			Node<T> succ = victim.next[level].get(marked);
+			while(!marked[0]) {
+				victim.next[level].compareAndSet(succ, succ, false, true);
+				succ = victim.next[level].get(marked);
+			}
+			
+		}
+		
+		Node<T> succ = victim.next[0].get(marked);
+		
+		while(true) {
+			
+			if(victim.next[0].compareAndSet(succ, succ, false, true)) {
+				
+				//This thread removed it, tidy up the links on the way past
+				find(element, preds, succs);
+				size.decrement();
+				return true;
+				
+			}
+			
+			succ = victim.next[0].get(marked);
+			if(marked[0]) {
+				
+				//Another thread removed it first
+				return false;
+				
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the largest element less than or equal to the given element, or null if there is none.
+	 */
+	public T floor(T element) {
+		
+		checkNotNull(element);
+		
+		Node<T> pred = head;
+		boolean[] marked = { false };
+		
+		for(int level = MAX_LEVEL - 1; level >= 0; level--) {
+			
+			Node<T> current = nextLive(pred, level, marked);
+			while(current != null && current.element.compareTo(element) <= 0) {
+				pred = current;
+				current = nextLive(pred, level, marked);
+			}
+			
+		}
+		
+		return pred == head ? null : pred.element;
+		
+	}
+
+	/*
+	 * Returns the smallest element greater than or equal to the given element, or null if there is none.
+	 */
+	public T ceiling(T element) {
+		
+		checkNotNull(element);
+		
+		Node<T> node = firstAtLeast(element);
+		return node == null ? null : node.element;
+		
+	}
+
+	/*
+	 * Returns the smallest element, or null if the set is empty.
+	 */
+	public T first() {
+		
+		Node<T> node = nextLive(head, 0, new boolean[1]);
+		return node == null ? null : node.element;
+		
+	}
+
+	/*
+	 * Returns the number of elements in the set.
+	 */
+	public int size() {
+		
+		return (int) Math.max(0, Math.min(size.sum(), Integer.MAX_VALUE));
+		
+	}
+
+	/*
+	 * Returns true if the set holds no elements.
+	 */
+	public boolean isEmpty() {
+		
+		return first() == null;
+		
+	}
+
+	/*
+	 * Returns a weakly consistent iterator over every element in ascending order.
+	 */
+	public Iterator<T> iterator() {
+		
+		return new RangeIterator(nextLive(head, 0, new boolean[1]), null);
+		
+	}
+
+	/*
+	 * Returns a weakly consistent iterator over the elements from fromElement (inclusive) up to
+	 * toElement (exclusive) in ascending order. A null bound means the range is open at that end.
+	 */
+	public Iterator<T> iterator(T fromElement, T toElement) {
+		
+		Node<T> start = (fromElement == null) ? nextLive(head, 0, new boolean[1]) : firstAtLeast(fromElement);
+		return new RangeIterator(start, toElement);
+		
+	}
+
+	/*
+	 * Returns the elements in ascending order separated by commas.
+	 */
+	public String toString() {
+		
+		return MyWritable.render(this::writeTo, size());
+		
+	}
+
+	/*
+	 * Writes the elements to out in the same format as toString. Like the iterator it is weakly
+	 * consistent, so it may or may not include changes made while it is writing.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		String separator = "";
+		
+		for(Node<T> node = nextLive(head, 0, new boolean[1]); node != null; node = nextLive(node, 0, new boolean[1])) {
+			out.append(separator).append(node.element.toString());
+			separator = ", ";
+		}
+		
+		if(separator.isEmpty()) {
+			out.append("empty");
+		}
+		
+	}
+
+	/*
+	 * Fills preds and succs with the nodes either side of where element goes on every level,
+	 * unlinking any marked nodes it passes. Returns true if the element is in the set.
+	 */
+	private boolean find(T element, Node<T>[] preds, Node<T>[] succs) {
+		
+		boolean[] marked = { false };
+		
+		retry:
+		while(true) {
+			
+			Node<T> pred = head;
+			
+			for(int level = MAX_LEVEL - 1; level >= 0; level--) {
+				
+				Node<T> current = pred.next[level].getReference();
+				
+				while(current != null) {
+					
+					Node<T> succ = current.next[level].get(marked);
+					
+					while(marked[0]) {
+						
+						//current is being removed, help by unlinking it at this level
+						if(!pred.next[level].compareAndSet(current, succ, false, false)) {
+							continue retry;
+						}
+						
+						current = succ;
+						if(current == null) {
+							break;
+						}
+						succ = current.next[level].get(marked);
+						
+					}
+					
+					if(current != null && current.element.compareTo(element) < 0) {
+						pred = current;
+						current = succ;
+					} else {
+						break;
+					}
+					
+				}
+				
+				preds[level] = pred;
+				succs[level] = current;
+				
+			}
+			
+			return succs[0] != null && succs[0].element.compareTo(element) == 0;
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the first unmarked node whose element is at least the given element, without changing anything.
+	 */
+	private Node<T> firstAtLeast(T element) {
+		
+		Node<T> pred = head;
+		Node<T> current = null;
+		boolean[] marked = { false };
+		
+		for(int level = MAX_LEVEL - 1; level >= 0; level--) {
+			
+			current = nextLive(pred, level, marked);
+			while(current != null && current.element.compareTo(element) < 0) {
+				pred = current;
+				current = nextLive(pred, level, marked);
+			}
+			
+		}
+		
+		return current;
+		
+	}
+
+	/*
+	 * Returns the first node after node on the given level which is not marked for removal.
+	 */
+	private static <T> Node<T> nextLive(Node<T> node, int level, boolean[] marked) {
+		
+		Node<T> current = node.next[level].getReference();
+		
+		while(current != null) {
+			
+			Node<T> succ = current.next[level].get(marked);
+			if(!marked[0]) {
+				return current;
+			}
+			current = succ;
+			
+		}
+		
+		return null;
+		
+	}
+
+	private static void checkNotNull(Object element) {
+		
+		if(element == null) {
+			throw new NullPointerException("Elements must not be null");
+		}
+		
+	}
+
+	/*
+	 * Picks how many levels a new node is in. Each extra level has half the chance of the one below.
+	 */
+	private static int randomLevel() {
+		
+		int bits = ThreadLocalRandom.current().nextInt();
+		return Integer.numberOfTrailingZeros(bits | (1 << (MAX_LEVEL - 1))) + 1;
+		
+	}
+
+	private static final class Node<T> {
+		
+		final T element;
+		final AtomicMarkableReference<Node<T>>[] next;
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Node(T element, int levels) {
+			
+			this.element = element;
+			next = new AtomicMarkableReference[levels];
+			for(int i = 0; i < levels; i++) {
+				next[i] = new AtomicMarkableReference<Node<T>>(null, false);
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Walks the bottom level from start, skipping marked nodes, until it reaches the end or toElement.
+	 */
+	private class RangeIterator implements Iterator<T> {
+		
+		private final T toElement;
+		private final boolean[] marked = { false };
+		private Node<T> nextNode;
+		
+		RangeIterator(Node<T> start, T toElement) {
+			
+			this.toElement = toElement;
+			nextNode = inRange(start);
+			
+		}
+		
+		public boolean hasNext() {
+			return nextNode != null;
+		}
+		
+		public T next() {
+			
+			if(nextNode == null) {
+				throw new NoSuchElementException();
+			}
+			
+			T element = nextNode.element;
+			nextNode = inRange(nextLive(nextNode, 0, marked));
+			return element;
+			
+		}
+		
+		private Node<T> inRange(Node<T> node) {
+			
+			if(node == null || (toElement != null && node.element.compareTo(toElement) >= 0)) {
+				return null;
+			}
+			
+			return node;
+			
+		}
+		
+	}
+
+}
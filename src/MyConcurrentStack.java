@@ -0,0 +1,230 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A stack which can be shared between threads without a lock (a Treiber stack). The stack is a
+ * linked list and the only shared state is the head pointer, which push and pop move with a single
+ * compare-and-set. If another thread moved the head first the CAS fails and the operation tries again.
+ * The classic ABA problem (the head being popped and pushed back between our read and our CAS) can't
+ * happen here: every push makes a new node, and the garbage collector won't reuse a node's memory
+ * while any thread still holds a reference to it, so an unchanged head reference really is unchanged.
+ * Under heavy contention the stack can also use an elimination array. A push and a pop which both
+ * lose their CAS can meet in a random slot of the array and swap the element directly, so neither
+ * has to touch the head at all.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+
+public class MyConcurrentStack<T> {
+	
+	//How many times a waiting push checks its elimination slot before giving up
+	private static final int ELIMINATION_SPINS = 64;
+	
+	private final AtomicReference<Node<T>> head;
+	private final AtomicReferenceArray<Node<T>> elimination;
+	
+	public MyConcurrentStack() {
+		
+		head = new AtomicReference<Node<T>>(null);
+		elimination = null;
+		
+	}
+
+	/*
+	 * Creates a stack with an elimination array of the given number of slots.
+	 * Roughly half the number of threads which use the stack at once is a good size.
+	 */
+	public MyConcurrentStack(int eliminationSlots) {
+		
+		if(eliminationSlots <= 0) {
+			throw new IllegalArgumentException("Elimination array must have at least one slot");
+		}
+		
+		head = new AtomicReference<Node<T>>(null);
+		elimination = new AtomicReferenceArray<Node<T>>(eliminationSlots);
+		
+	}
+
+	/*
+	 * Add the element to the top of the stack.
+	 */
+	public void push(T element) {
+		
+		Node<T> node = new Node<T>(element);
+		
+		while(true) {
+			
+			Node<T> oldHead = head.get();
+			node.next = oldHead;
+			
+			if(head.compareAndSet(oldHead, node)) {
+				return;
+			}
+			
+			//Lost the race, see if a pop will take the element directly
+			if(elimination != null && tryEliminatePush(node)) {
+				return;
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Remove an element from the top of the stack.
+	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
+	 */
+	public T pop() {
+		
+		Node<T> node = popNode();
+		
+		if(node == null) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return node.element;
+		
+	}
+
+	/*
+	 * Remove an element from the top of the stack, or return null if it is empty.
+	 * Unlike checking hasNext and then calling pop this can't fail because another
+	 * thread took the last element in between.
+	 */
+	public T tryPop() {
+		
+		Node<T> node = popNode();
+		
+		return node == null ? null : node.element;
+		
+	}
+
+	/*
+	 * Returns true if there is an item on the stack
+	 */
+	public boolean hasNext() {
+		
+		return head.get() != null;
+		
+	}
+
+	/*
+	 * Returns the number of items on the stack. This walks the whole stack, and is only
+	 * a snapshot if other threads are pushing and popping.
+	 */
+	public int size() {
+		
+		int size = 0;
+		
+		for(Node<T> node = head.get(); node != null; node = node.next) {
+			size++;
+		}
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns the string implementation of the stack.
+	 */
+	public String toString() {
+		
+		Node<T> node = head.get();
+		
+		if(node == null) {
+			return "empty";
+		}
+		
+		StringBuilder builder = new StringBuilder();
+		builder.append(node.element.toString());
+		
+		for(node = node.next; node != null; node = node.next) {
+			builder.append(", ").append(node.element.toString());
+		}
+		
+		return builder.toString();
+		
+	}
+
+	private Node<T> popNode() {
+		
+		while(true) {
+			
+			Node<T> oldHead = head.get();
+			
+			if(oldHead == null) {
+				return null;
+			}
+			
+			if(head.compareAndSet(oldHead, oldHead.next)) {
+				return oldHead;
+			}
+			
+			//Lost the race, see if a push is waiting to hand over an element
+			if(elimination != null) {
+				
+				Node<T> node = tryEliminatePop();
+				if(node != null) {
+					return node;
+				}
+				
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Leaves the node in a random empty slot for a while. Returns true if a pop took it.
+	 */
+	private boolean tryEliminatePush(Node<T> node) {
+		
+		int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+		
+		if(!elimination.compareAndSet(slot, null, node)) {
+			return false;
+		}
+		
+		for(int i = 0; i < ELIMINATION_SPINS; i++) {
+			
+			if(elimination.get(slot) != node) {
+				return true;
+			}
+			
+		}
+		
+		//Nobody came, take the node back. If that fails a pop got it at the last moment.
+		return !elimination.compareAndSet(slot, node, null);
+		
+	}
+
+	/*
+	 * Takes a waiting push's node from a random slot, or returns null if there isn't one.
+	 */
+	private Node<T> tryEliminatePop() {
+		
+		int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+		Node<T> node = elimination.get(slot);
+		
+		if(node != null && elimination.compareAndSet(slot, node, null)) {
+			return node;
+		}
+		
+		return null;
+		
+	}
+
+	private static final class Node<T> {
+		
+		final T element;
+		Node<T> next;
+		
+		Node(T element) {
+			this.element = element;
+		}
+		
+	}
+
+}
@@ -0,0 +1,1234 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A B+ tree from long keys to long values which lives in a file, so it can hold far more than fits
+ * in memory and is still there when the program restarts. The file is split into fixed size pages
+ * and every tree node is one page. Pages are read through a bounded buffer pool which keeps the most
+ * useful ones in memory and picks pages to throw out with the clock algorithm: every cached page has
+ * a referenced bit which is set when it is used, and a hand sweeps round the pool clearing the bits
+ * until it finds a page which hasn't been used since its last visit.
+ *
+ * File layout (all numbers big endian, pages are PAGE_SIZE bytes):
+ *   Page 0:      magic (int), version (int), page size (int), root page (int), page count (int), padding, size (long)
+ *   Leaf page:   type (int), count (int), next leaf (int), padding, keys (long[LEAF_CAPACITY]), values (long[LEAF_CAPACITY])
+ *   Inner page:  type (int), count (int), unused (int), padding, keys (long[INNER_CAPACITY]), children (int[INNER_CAPACITY + 1])
+ *
+ * Crash safety comes from a write-ahead log kept next to the file (with ".wal" on the end).
+ * Every put and remove is appended to the log before it changes any page, and changed pages are only
+ * written back to the file at a checkpoint. A checkpoint first appends an image of every changed page
+ * to the log followed by a marker, forces the log to disk, and only then writes the pages into the file
+ * and empties the log. If the program stops part way through, opening the tree again finds either a
+ * complete set of page images (which are copied into the file again) or an unfinished one (which is
+ * ignored because the file hasn't been touched yet), and then redoes the operations logged after the
+ * last checkpoint. Every record carries a CRC so a half written record at the end of the log is
+ * recognised and dropped. The log is forced to disk by flush and close, so after a power failure the
+ * tree comes back as it was at the last flush or later; after the program itself crashes nothing is lost.
+ * Checkpoints happen on flush and close, and whenever more than half of the buffer pool is waiting to
+ * be written back.
+ *
+ * Removing a key just takes it out of its leaf, nodes are never merged, so a leaf can become empty
+ * and the space isn't reused. This keeps removal to one page and is how many databases do it.
+ * The tree is not thread safe.
+ * @author Andrew
+ *
+ */
+
+public class MyDiskBPlusTree implements Closeable {
+	
+	public static final int PAGE_SIZE = 4096;
+	
+	private static final int MAGIC = 0x44425054; //"DBPT"
+	private static final int VERSION = 1;
+	
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int PAGE_SIZE_OFFSET = 8;
+	private static final int ROOT_OFFSET = 12;
+	private static final int PAGE_COUNT_OFFSET = 16;
+	private static final int SIZE_OFFSET = 24;
+	
+	private static final int LEAF = 1;
+	private static final int INNER = 2;
+	private static final int TYPE_OFFSET = 0;
+	private static final int COUNT_OFFSET = 4;
+	private static final int NEXT_OFFSET = 8;
+	private static final int NODE_HEADER_SIZE = 16;
+	
+	private static final int LEAF_CAPACITY = (PAGE_SIZE - NODE_HEADER_SIZE) / 16;
+	private static final int LEAF_VALUES_OFFSET = NODE_HEADER_SIZE + LEAF_CAPACITY * 8;
+	private static final int INNER_CAPACITY = (PAGE_SIZE - NODE_HEADER_SIZE - 4) / 12;
+	private static final int INNER_CHILDREN_OFFSET = NODE_HEADER_SIZE + INNER_CAPACITY * 8;
+	
+	//Log records: an operation, an image of one page, or the marker which ends a checkpoint
+	private static final byte PUT_RECORD = 1;
+	private static final byte REMOVE_RECORD = 2;
+	private static final byte PAGE_RECORD = 3;
+	private static final byte CHECKPOINT_RECORD = 4;
+	private static final int OPERATION_RECORD_SIZE = 1 + 8 + 8 + 4;
+	private static final int PAGE_RECORD_SIZE = 1 + 4 + PAGE_SIZE + 4;
+	private static final int CHECKPOINT_RECORD_SIZE = 1 + 4 + 4;
+	
+	private static final int MIN_CACHE_PAGES = 8;
+	
+	private final FileChannel data;
+	private final FileChannel log;
+	private long logEnd;
+	
+	private int root;
+	private int pageCount;
+	private long size;
+	
+	//The buffer pool
+	private final int cachePages;
+	private Frame[] frames;
+	private int frameCount;
+	private int clockHand;
+	private int dirtyCount;
+	private final MyLongObjectHashTable<Frame> pageTable;
+	private final MyStack<Frame> pinned;
+	
+	private boolean recovering;
+	private long pageReads;
+	
+	/*
+	 * Opens the tree stored in file, or creates it if the file doesn't exist yet, keeping at most
+	 * cachePages pages in memory. If the log shows the tree wasn't closed properly it is recovered first.
+	 */
+	public MyDiskBPlusTree(Path file, int cachePages) throws IOException {
+		
+		this(file, cachePages, true);
+		
+	}
+
+	/*
+	 * As above, but if checkpointAfterRecovery is false a recovered tree is left with the replayed
+	 * changes only in memory and in the log, as if the program had stopped just before the checkpoint
+	 * which ends recovery. Only for testing recovery, together with crash.
+	 */
+	MyDiskBPlusTree(Path file, int cachePages, boolean checkpointAfterRecovery) throws IOException {
+		
+		if(cachePages < MIN_CACHE_PAGES) {
+			throw new IllegalArgumentException("The buffer pool needs at least " + MIN_CACHE_PAGES + " pages");
+		}
+		
+		this.cachePages = cachePages;
+		frames = new Frame[cachePages];
+		frameCount = 0;
+		pageTable = new MyLongObjectHashTable<Frame>(cachePages);
+		pinned = new MyStack<Frame>();
+		
+		data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		Path logFile = file.resolveSibling(file.getFileName() + ".wal");
+		
+		try {
+			
+			log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			throw e;
+		}
+		
+		try {
+			
+			if(data.size() == 0 && log.size() == 0) {
+				
+				//A brand new tree with no pages but the header
+				root = 0;
+				pageCount = 1;
+				size = 0;
+				writePage(0, metaPage());
+				data.force(true);
+				
+			} else {
+				
+				recover(checkpointAfterRecovery);
+				
+			}
+			
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			log.close();
+			throw e;
+		}
+		
+	}
+
+	/*
+	 * Maps key to value, replacing any value it had before.
+	 */
+	public void put(long key, long value) throws IOException {
+		
+		logOperation(PUT_RECORD, key, value);
+		
+		try {
+			
+			if(root == 0) {
+				
+				Frame frame = newPage();
+				ByteBuffer page = frame.page;
+				page.putInt(TYPE_OFFSET, LEAF);
+				root = frame.pageId;
+				
+			}
+			
+			//Remember the way down so a split can be passed back up
+			MyIntStack parents = new MyIntStack();
+			MyIntStack childIndexes = new MyIntStack();
+			Frame leaf = findLeaf(key, parents, childIndexes);
+			ByteBuffer page = leaf.page;
+			int count = page.getInt(COUNT_OFFSET);
+			int position = search(page, count, key);
+			
+			if(position >= 0) {
+				
+				//Already there, just replace the value
+				page.putLong(LEAF_VALUES_OFFSET + position * 8, value);
+				markDirty(leaf);
+				return;
+				
+			}
+			
+			position = -position - 1;
+			size++;
+			
+			if(count < LEAF_CAPACITY) {
+				
+				shiftLongs(page, NODE_HEADER_SIZE, position, count);
+				shiftLongs(page, LEAF_VALUES_OFFSET, position, count);
+				page.putLong(NODE_HEADER_SIZE + position * 8, key);
+				page.putLong(LEAF_VALUES_OFFSET + position * 8, value);
+				page.putInt(COUNT_OFFSET, count + 1);
+				markDirty(leaf);
+				return;
+				
+			}
+			
+			//The leaf is full, so split it in two and pass the right half's first key up
+			int rightPage = splitLeaf(leaf, position, key, value);
+			long separator = fetch(rightPage).page.getLong(NODE_HEADER_SIZE);
+			insertIntoParents(leaf.pageId, separator, rightPage, parents, childIndexes);
+			
+		} finally {
+			endOperation();
+		}
+		
+	}
+
+	/*
+	 * Returns the value which key maps to, or defaultValue if the key isn't in the tree.
+	 */
+	public long get(long key, long defaultValue) throws IOException {
+		
+		try {
+			
+			if(root == 0) {
+				return defaultValue;
+			}
+			
+			ByteBuffer page = findLeaf(key, null, null).page;
+			int position = search(page, page.getInt(COUNT_OFFSET), key);
+			
+			return position >= 0 ? page.getLong(LEAF_VALUES_OFFSET + position * 8) : defaultValue;
+			
+		} finally {
+			endOperation();
+		}
+		
+	}
+
+	/*
+	 * Returns true if the key is in the tree.
+	 */
+	public boolean contains(long key) throws IOException {
+		
+		try {
+			
+			if(root == 0) {
+				return false;
+			}
+			
+			ByteBuffer page = findLeaf(key, null, null).page;
+			return search(page, page.getInt(COUNT_OFFSET), key) >= 0;
+			
+		} finally {
+			endOperation();
+		}
+		
+	}
+
+	/*
+	 * Removes the key if it is in the tree. Returns true if it was there.
+	 */
+	public boolean remove(long key) throws IOException {
+		
+		if(!contains(key)) {
+			return false;
+		}
+		
+		logOperation(REMOVE_RECORD, key, 0);
+		
+		try {
+			
+			Frame leaf = findLeaf(key, null, null);
+			ByteBuffer page = leaf.page;
+			int count = page.getInt(COUNT_OFFSET);
+			int position = search(page, count, key);
+			
+			unshiftLongs(page, NODE_HEADER_SIZE, position, count);
+			unshiftLongs(page, LEAF_VALUES_OFFSET, position, count);
+			page.putInt(COUNT_OFFSET, count - 1);
+			markDirty(leaf);
+			size--;
+			
+			return true;
+			
+		} finally {
+			endOperation();
+		}
+		
+	}
+
+	/*
+	 * Returns the number of keys in the tree.
+	 */
+	public long size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns how many times a page has had to be read from the file because it wasn't in the buffer pool.
+	 */
+	public long getPageReads() {
+		
+		return pageReads;
+		
+	}
+
+	/*
+	 * Returns a cursor over the keys from low to high (including both ends) in ascending order.
+	 * Call next() to move onto each pair. The tree must not be changed while the cursor is in use.
+	 */
+	public Cursor cursor(long low, long high) throws IOException {
+		
+		try {
+			
+			if(root == 0) {
+				return new Cursor(0, 0, high);
+			}
+			
+			Frame leaf = findLeaf(low, null, null);
+			int position = search(leaf.page, leaf.page.getInt(COUNT_OFFSET), low);
+			
+			return new Cursor(leaf.pageId, position >= 0 ? position : -position - 1, high);
+			
+		} finally {
+			endOperation();
+		}
+		
+	}
+
+	/*
+	 * Writes every change out to the file and empties the log.
+	 */
+	public void flush() throws IOException {
+		
+		checkpoint();
+		
+	}
+
+	/*
+	 * Flushes the tree and closes the file and the log. The tree can't be used afterwards.
+	 */
+	public void close() throws IOException {
+		
+		if(data.isOpen()) {
+			
+			try {
+				checkpoint();
+			} finally {
+				data.close();
+				log.close();
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Closes the files the way a crash would leave them, without a checkpoint, so tests can
+	 * check recovery. If imagesLogged is true the crash comes part way through a checkpoint:
+	 * the page images are in the log (followed by the marker if markerLogged) but none of
+	 * them have been written into the file yet. The tree can't be used afterwards.
+	 */
+	void crash(boolean imagesLogged, boolean markerLogged) throws IOException {
+		
+		try {
+			
+			if(imagesLogged) {
+				logPageImages(metaPage(), markerLogged);
+			}
+			
+		} finally {
+			data.close();
+			log.close();
+		}
+		
+	}
+
+	/*
+	 * Walks down from the root to the leaf where key belongs. If parents isn't null it is filled
+	 * with the inner pages on the way, and childIndexes with which child was taken from each.
+	 */
+	private Frame findLeaf(long key, MyIntStack parents, MyIntStack childIndexes) throws IOException {
+		
+		Frame frame = fetch(root);
+		
+		while(frame.page.getInt(TYPE_OFFSET) == INNER) {
+			
+			ByteBuffer page = frame.page;
+			
+			//A key equal to a separator belongs in the child to its right
+			int index = search(page, page.getInt(COUNT_OFFSET), key);
+			index = (index >= 0) ? index + 1 : -index - 1;
+			
+			if(parents != null) {
+				parents.push(frame.pageId);
+				childIndexes.push(index);
+			}
+			
+			frame = fetch(page.getInt(INNER_CHILDREN_OFFSET + index * 4));
+			
+		}
+		
+		return frame;
+		
+	}
+
+	/*
+	 * Splits a full leaf around a new pair which goes at position. The leaf keeps the lower half
+	 * and a new leaf linked in after it gets the upper half. Returns the new leaf's page.
+	 */
+	private int splitLeaf(Frame leaf, int position, long key, long value) throws IOException {
+		
+		ByteBuffer page = leaf.page;
+		int total = LEAF_CAPACITY + 1;
+		long[] keys = new long[total];
+		long[] values = new long[total];
+		
+		for(int i = 0, j = 0; i < total; i++) {
+			
+			if(i == position) {
+				keys[i] = key;
+				values[i] = value;
+			} else {
+				keys[i] = page.getLong(NODE_HEADER_SIZE + j * 8);
+				values[i] = page.getLong(LEAF_VALUES_OFFSET + j * 8);
+				j++;
+			}
+			
+		}
+		
+		int keep = total / 2;
+		writeLeafEntries(page, keys, values, 0, keep);
+		markDirty(leaf);
+		
+		Frame right = newPage();
+		ByteBuffer rightPage = right.page;
+		rightPage.putInt(TYPE_OFFSET, LEAF);
+		writeLeafEntries(rightPage, keys, values, keep, total);
+		rightPage.putInt(NEXT_OFFSET, page.getInt(NEXT_OFFSET));
+		page.putInt(NEXT_OFFSET, right.pageId);
+		
+		return right.pageId;
+		
+	}
+
+	/*
+	 * Adds separator and rightPage to the parent of leftPage, splitting parents in turn while they
+	 * are full. If the root splits the tree grows a new root.
+	 */
+	private void insertIntoParents(int leftPage, long separator, int rightPage, MyIntStack parents, MyIntStack childIndexes) throws IOException {
+		
+		while(true) {
+			
+			if(!parents.hasNext()) {
+				
+				Frame newRoot = newPage();
+				ByteBuffer page = newRoot.page;
+				page.putInt(TYPE_OFFSET, INNER);
+				page.putInt(COUNT_OFFSET, 1);
+				page.putLong(NODE_HEADER_SIZE, separator);
+				page.putInt(INNER_CHILDREN_OFFSET, leftPage);
+				page.putInt(INNER_CHILDREN_OFFSET + 4, rightPage);
+				root = newRoot.pageId;
+				return;
+				
+			}
+			
+			Frame parent = fetch(parents.pop());
+			int index = childIndexes.pop();
+			ByteBuffer page = parent.page;
+			int count = page.getInt(COUNT_OFFSET);
+			
+			if(count < INNER_CAPACITY) {
+				
+				shiftLongs(page, NODE_HEADER_SIZE, index, count);
+				shiftInts(page, INNER_CHILDREN_OFFSET, index + 1, count + 1);
+				page.putLong(NODE_HEADER_SIZE + index * 8, separator);
+				page.putInt(INNER_CHILDREN_OFFSET + (index + 1) * 4, rightPage);
+				page.putInt(COUNT_OFFSET, count + 1);
+				markDirty(parent);
+				return;
+				
+			}
+			
+			//Full, so lay out the keys and children with the new ones in and split around the middle key
+			long[] keys = new long[count + 1];
+			int[] children = new int[count + 2];
+			
+			for(int i = 0, j = 0; i < count + 1; i++) {
+				keys[i] = (i == index) ? separator : page.getLong(NODE_HEADER_SIZE + (j++) * 8);
+			}
+			for(int i = 0, j = 0; i < count + 2; i++) {
+				children[i] = (i == index + 1) ? rightPage : page.getInt(INNER_CHILDREN_OFFSET + (j++) * 4);
+			}
+			
+			int middle = (count + 1) / 2;
+			writeInnerEntries(page, keys, children, 0, middle);
+			markDirty(parent);
+			
+			Frame right = newPage();
+			right.page.putInt(TYPE_OFFSET, INNER);
+			writeInnerEntries(right.page, keys, children, middle + 1, count + 1);
+			
+			//The middle key moves up to the next parent
+			leftPage = parent.pageId;
+			separator = keys[middle];
+			rightPage = right.pageId;
+			
+		}
+		
+	}
+
+	private static void writeLeafEntries(ByteBuffer page, long[] keys, long[] values, int from, int to) {
+		
+		for(int i = from; i < to; i++) {
+			page.putLong(NODE_HEADER_SIZE + (i - from) * 8, keys[i]);
+			page.putLong(LEAF_VALUES_OFFSET + (i - from) * 8, values[i]);
+		}
+		
+		page.putInt(COUNT_OFFSET, to - from);
+		
+	}
+
+	/*
+	 * Writes keys[from..to-1] and children[from..to] into the page.
+	 */
+	private static void writeInnerEntries(ByteBuffer page, long[] keys, int[] children, int from, int to) {
+		
+		for(int i = from; i < to; i++) {
+			page.putLong(NODE_HEADER_SIZE + (i - from) * 8, keys[i]);
+		}
+		
+		for(int i = from; i <= to; i++) {
+			page.putInt(INNER_CHILDREN_OFFSET + (i - from) * 4, children[i]);
+		}
+		
+		page.putInt(COUNT_OFFSET, to - from);
+		
+	}
+
+	/*
+	 * Binary search for key among the first count keys of the page. Like Arrays.binarySearch it
+	 * returns the index of the key, or -(insertion point) - 1 if it isn't there.
+	 */
+	private static int search(ByteBuffer page, int count, long key) {
+		
+		int low = 0;
+		int high = count - 1;
+		
+		while(low <= high) {
+			
+			int middle = (low + high) >>> 1;
+			long middleKey = page.getLong(NODE_HEADER_SIZE + middle * 8);
+			
+			if(middleKey < key) {
+				low = middle + 1;
+			} else if(middleKey > key) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+			
+		}
+		
+		return -(low + 1);
+		
+	}
+
+	/*
+	 * Moves the longs at index..count-1 of the array starting at offset up one place.
+	 */
+	private static void shiftLongs(ByteBuffer page, int offset, int index, int count) {
+		
+		for(int i = count; i > index; i--) {
+			page.putLong(offset + i * 8, page.getLong(offset + (i - 1) * 8));
+		}
+		
+	}
+
+	/*
+	 * Moves the longs at index+1..count-1 of the array starting at offset down one place over index.
+	 */
+	private static void unshiftLongs(ByteBuffer page, int offset, int index, int count) {
+		
+		for(int i = index; i < count - 1; i++) {
+			page.putLong(offset + i * 8, page.getLong(offset + (i + 1) * 8));
+		}
+		
+	}
+
+	private static void shiftInts(ByteBuffer page, int offset, int index, int count) {
+		
+		for(int i = count; i > index; i--) {
+			page.putInt(offset + i * 4, page.getInt(offset + (i - 1) * 4));
+		}
+		
+	}
+
+	/*
+	 * Returns the frame holding the page, reading it into the buffer pool if it isn't already there.
+	 * The frame stays pinned (can't be thrown out) until the end of the current operation.
+	 */
+	private Frame fetch(int pageId) throws IOException {
+		
+		Frame frame = pageTable.get(pageId);
+		
+		if(frame == null) {
+			
+			frame = freeFrame();
+			frame.pageId = pageId;
+			readPage(pageId, frame.page);
+			pageTable.add(pageId, frame);
+			pageReads++;
+			
+		}
+		
+		frame.referenced = true;
+		pin(frame);
+		
+		return frame;
+		
+	}
+
+	/*
+	 * Adds a new empty page to the end of the file and returns its pinned, dirty frame.
+	 */
+	private Frame newPage() throws IOException {
+		
+		Frame frame = freeFrame();
+		frame.pageId = pageCount++;
+		Arrays.fill(frame.page.array(), (byte) 0);
+		pageTable.add(frame.pageId, frame);
+		
+		frame.referenced = true;
+		pin(frame);
+		markDirty(frame);
+		
+		return frame;
+		
+	}
+
+	/*
+	 * Returns a frame to load a page into. Uses an empty slot if there is one, otherwise the clock
+	 * hand sweeps round for a clean, unpinned page which hasn't been used since it was last passed.
+	 * Dirty pages aren't written back here as their changes must reach the log first, so if every
+	 * page is dirty or pinned the pool grows until the end of the operation.
+	 */
+	private Frame freeFrame() {
+		
+		if(frameCount < frames.length) {
+			Frame frame = new Frame();
+			frames[frameCount++] = frame;
+			return frame;
+		}
+		
+		for(int i = 0; i < frameCount * 2; i++) {
+			
+			Frame frame = frames[clockHand];
+			clockHand = (clockHand + 1) % frameCount;
+			
+			if(frame.pinned || frame.dirty) {
+				continue;
+			}
+			
+			if(frame.referenced) {
+				
+				//Second chance
+				frame.referenced = false;
+				
+			} else {
+				
+				pageTable.remove(frame.pageId);
+				return frame;
+				
+			}
+			
+		}
+		
+		frames = Arrays.copyOf(frames, frameCount * 2);
+		Frame frame = new Frame();
+		frames[frameCount++] = frame;
+		
+		return frame;
+		
+	}
+
+	private void pin(Frame frame) {
+		
+		if(!frame.pinned) {
+			frame.pinned = true;
+			pinned.push(frame);
+		}
+		
+	}
+
+	private void markDirty(Frame frame) {
+		
+		if(!frame.dirty) {
+			frame.dirty = true;
+			dirtyCount++;
+		}
+		
+	}
+
+	/*
+	 * Unpins the pages used by the operation which just finished, and checkpoints if too much of
+	 * the pool is dirty or the pool had to grow past its size.
+	 */
+	private void endOperation() throws IOException {
+		
+		while(pinned.hasNext()) {
+			pinned.pop().pinned = false;
+		}
+		
+		if(!recovering && (dirtyCount > cachePages / 2 || frameCount > cachePages)) {
+			checkpoint();
+		}
+		
+	}
+
+	/*
+	 * Appends the operation to the log before any page is changed.
+	 */
+	private void logOperation(byte type, long key, long value) throws IOException {
+		
+		if(recovering) {
+			return;
+		}
+		
+		ByteBuffer record = ByteBuffer.allocate(OPERATION_RECORD_SIZE);
+		record.put(type).putLong(key).putLong(value);
+		record.putInt(checksum(record.array(), 0, OPERATION_RECORD_SIZE - 4));
+		record.flip();
+		
+		appendToLog(record);
+		
+	}
+
+	/*
+	 * Writes every dirty page and the header into the file so that the log can be emptied.
+	 * The page images go into the log first, so a crash part way through writing the file
+	 * can be repaired by copying them again.
+	 */
+	private void checkpoint() throws IOException {
+		
+		ByteBuffer meta = metaPage();
+		logPageImages(meta, true);
+		
+		//The images are safe, now the pages can go into the file
+		for(int i = 0; i < frameCount; i++) {
+			
+			if(frames[i].dirty) {
+				writePage(frames[i].pageId, frames[i].page);
+				frames[i].dirty = false;
+			}
+			
+		}
+		
+		writePage(0, meta);
+		data.force(false);
+		dirtyCount = 0;
+		
+		log.truncate(0);
+		logEnd = 0;
+		log.force(false);
+		
+		shrinkPool();
+		
+	}
+
+	/*
+	 * The first half of a checkpoint: appends an image of every dirty page and of the header
+	 * to the log, then the marker which says the set is complete (if withMarker), and forces the log.
+	 */
+	private void logPageImages(ByteBuffer meta, boolean withMarker) throws IOException {
+		
+		CRC32 groupChecksum = new CRC32();
+		int pages = 0;
+		
+		for(int i = 0; i < frameCount; i++) {
+			
+			if(frames[i].dirty) {
+				appendToLog(pageRecord(frames[i].pageId, frames[i].page, groupChecksum));
+				pages++;
+			}
+			
+		}
+		
+		appendToLog(pageRecord(0, meta, groupChecksum));
+		pages++;
+		
+		if(withMarker) {
+			ByteBuffer marker = ByteBuffer.allocate(CHECKPOINT_RECORD_SIZE);
+			marker.put(CHECKPOINT_RECORD).putInt(pages).putInt((int) groupChecksum.getValue());
+			marker.flip();
+			appendToLog(marker);
+		}
+		
+		log.force(false);
+		
+	}
+
+	/*
+	 * Drops clean, unpinned frames until the pool is back to its size after it had to grow.
+	 */
+	private void shrinkPool() {
+		
+		if(frameCount <= cachePages) {
+			return;
+		}
+		
+		int kept = 0;
+		for(int i = 0; i < frameCount; i++) {
+			
+			Frame frame = frames[i];
+			
+			if(kept < cachePages || frame.pinned || frame.dirty) {
+				frames[kept++] = frame;
+			} else {
+				pageTable.remove(frame.pageId);
+			}
+			
+		}
+		
+		Arrays.fill(frames, kept, frameCount, null);
+		frameCount = kept;
+		clockHand = 0;
+		
+	}
+
+	/*
+	 * Opens an existing tree. If the log holds a complete checkpoint its page images are copied into
+	 * the file again, then every operation logged after it is done again. Finally a checkpoint makes
+	 * it all permanent, unless checkpoint is false.
+	 */
+	private void recover(boolean checkpoint) throws IOException {
+		
+		//First pass: find where the valid records end and where the last complete checkpoint is
+		long validEnd = 0;
+		long checkpointStart = -1;
+		long checkpointEnd = -1;
+		long groupStart = 0;
+		CRC32 groupChecksum = new CRC32();
+		int groupPages = 0;
+		boolean groupEnded = false;
+		
+		DataInputStream in = openLog();
+		try {
+			
+			while(true) {
+				
+				byte type = in.readByte();
+				
+				if(type == PUT_RECORD || type == REMOVE_RECORD) {
+					
+					long key = in.readLong();
+					long value = in.readLong();
+					if(in.readInt() != operationChecksum(type, key, value)) {
+						break;
+					}
+					validEnd += OPERATION_RECORD_SIZE;
+					groupStart = validEnd;
+					groupChecksum.reset();
+					groupPages = 0;
+					groupEnded = false;
+					
+				} else if(type == PAGE_RECORD) {
+					
+					//The header is always the last image of a checkpoint, so an image after it starts a
+					//new checkpoint and the one before it was never finished
+					if(groupEnded) {
+						groupStart = validEnd;
+						groupChecksum.reset();
+						groupPages = 0;
+					}
+					
+					int pageId = in.readInt();
+					byte[] image = new byte[PAGE_SIZE];
+					in.readFully(image);
+					if(in.readInt() != pageChecksum(pageId, image, groupChecksum)) {
+						break;
+					}
+					validEnd += PAGE_RECORD_SIZE;
+					groupPages++;
+					groupEnded = pageId == 0;
+					
+				} else if(type == CHECKPOINT_RECORD) {
+					
+					int pages = in.readInt();
+					if(in.readInt() != (int) groupChecksum.getValue() || pages != groupPages) {
+						break;
+					}
+					validEnd += CHECKPOINT_RECORD_SIZE;
+					checkpointStart = groupStart;
+					checkpointEnd = validEnd;
+					groupStart = validEnd;
+					groupChecksum.reset();
+					groupPages = 0;
+					groupEnded = false;
+					
+				} else {
+					
+					break;
+					
+				}
+				
+			}
+			
+		} catch (EOFException e) {
+			//A record cut short by a crash, everything before it is still good
+		} finally {
+			in.close();
+		}
+		
+		//Images at the end without a marker are from a checkpoint which never finished, so drop them.
+		//Anything new then goes after the valid records, never over the operations about to be redone
+		if(groupPages > 0) {
+			validEnd = groupStart;
+		}
+		log.truncate(validEnd);
+		logEnd = validEnd;
+		
+		//Second pass: copy in the checkpoint's page images, then redo the operations after it
+		if(checkpointStart >= 0) {
+			
+			in = openLog();
+			try {
+				
+				skipFully(in, checkpointStart);
+				for(long position = checkpointStart; position < checkpointEnd - CHECKPOINT_RECORD_SIZE; position += PAGE_RECORD_SIZE) {
+					
+					in.readByte();
+					int pageId = in.readInt();
+					byte[] image = new byte[PAGE_SIZE];
+					in.readFully(image);
+					in.readInt();
+					writePage(pageId, ByteBuffer.wrap(image));
+					
+				}
+				
+			} finally {
+				in.close();
+			}
+			
+			data.force(false);
+			
+		}
+		
+		readMetaPage();
+		
+		recovering = true;
+		in = openLog();
+		try {
+			
+			long position = Math.max(checkpointEnd, 0);
+			skipFully(in, position);
+			
+			while(position < validEnd) {
+				
+				byte type = in.readByte();
+				
+				if(type == PAGE_RECORD) {
+					
+					//Part of an unfinished checkpoint, which never reached the file
+					skipFully(in, PAGE_RECORD_SIZE - 1);
+					position += PAGE_RECORD_SIZE;
+					
+				} else {
+					
+					long key = in.readLong();
+					long value = in.readLong();
+					in.readInt();
+					position += OPERATION_RECORD_SIZE;
+					
+					if(type == PUT_RECORD) {
+						put(key, value);
+					} else {
+						remove(key);
+					}
+					
+				}
+				
+			}
+			
+		} finally {
+			in.close();
+			recovering = false;
+		}
+		
+		if(checkpoint) {
+			checkpoint();
+		}
+		
+	}
+
+	private DataInputStream openLog() throws IOException {
+		
+		log.position(0);
+		return new DataInputStream(new BufferedInputStream(Channels.newInputStream(log), 1 << 16)) {
+			
+			//Closing the stream must not close the log channel
+			public void close() {
+			}
+			
+		};
+		
+	}
+
+	private static void skipFully(DataInputStream in, long bytes) throws IOException {
+		
+		while(bytes > 0) {
+			
+			int chunk = (int) Math.min(bytes, PAGE_SIZE);
+			in.readFully(new byte[chunk]);
+			bytes -= chunk;
+			
+		}
+		
+	}
+
+	private void readMetaPage() throws IOException {
+		
+		ByteBuffer meta = ByteBuffer.allocate(PAGE_SIZE);
+		readPage(0, meta);
+		
+		if(meta.getInt(MAGIC_OFFSET) != MAGIC || meta.getInt(VERSION_OFFSET) != VERSION || meta.getInt(PAGE_SIZE_OFFSET) != PAGE_SIZE) {
+			throw new IOException("Not a disk B+ tree file");
+		}
+		
+		root = meta.getInt(ROOT_OFFSET);
+		pageCount = meta.getInt(PAGE_COUNT_OFFSET);
+		size = meta.getLong(SIZE_OFFSET);
+		
+	}
+
+	private ByteBuffer metaPage() {
+		
+		ByteBuffer meta = ByteBuffer.allocate(PAGE_SIZE);
+		meta.putInt(MAGIC_OFFSET, MAGIC);
+		meta.putInt(VERSION_OFFSET, VERSION);
+		meta.putInt(PAGE_SIZE_OFFSET, PAGE_SIZE);
+		meta.putInt(ROOT_OFFSET, root);
+		meta.putInt(PAGE_COUNT_OFFSET, pageCount);
+		meta.putLong(SIZE_OFFSET, size);
+		
+		return meta;
+		
+	}
+
+	private ByteBuffer pageRecord(int pageId, ByteBuffer page, CRC32 groupChecksum) {
+		
+		ByteBuffer record = ByteBuffer.allocate(PAGE_RECORD_SIZE);
+		record.put(PAGE_RECORD).putInt(pageId).put(page.array(), 0, PAGE_SIZE);
+		record.putInt(pageChecksum(pageId, page.array(), groupChecksum));
+		record.flip();
+		
+		return record;
+		
+	}
+
+	/*
+	 * Checksum of a page record, which is also added into the checksum of the whole checkpoint.
+	 */
+	private static int pageChecksum(int pageId, byte[] image, CRC32 groupChecksum) {
+		
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(4).putInt(pageId).array());
+		crc.update(image, 0, PAGE_SIZE);
+		
+		int value = (int) crc.getValue();
+		groupChecksum.update(ByteBuffer.allocate(4).putInt(value).array());
+		
+		return value;
+		
+	}
+
+	private static int operationChecksum(byte type, long key, long value) {
+		
+		ByteBuffer record = ByteBuffer.allocate(OPERATION_RECORD_SIZE - 4);
+		record.put(type).putLong(key).putLong(value);
+		
+		return checksum(record.array(), 0, record.capacity());
+		
+	}
+
+	private static int checksum(byte[] bytes, int offset, int length) {
+		
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		
+		return (int) crc.getValue();
+		
+	}
+
+	private void appendToLog(ByteBuffer record) throws IOException {
+		
+		while(record.hasRemaining()) {
+			logEnd += log.write(record, logEnd);
+		}
+		
+	}
+
+	/*
+	 * Reads the page from the file. A page past the end of the file has never been written, so it is all zeros.
+	 */
+	private void readPage(int pageId, ByteBuffer page) throws IOException {
+		
+		Arrays.fill(page.array(), (byte) 0);
+		page.clear();
+		long position = (long) pageId * PAGE_SIZE;
+		
+		while(page.hasRemaining()) {
+			
+			int read = data.read(page, position + page.position());
+			if(read < 0) {
+				break;
+			}
+			
+		}
+		
+		page.clear();
+		
+	}
+
+	private void writePage(int pageId, ByteBuffer page) throws IOException {
+		
+		ByteBuffer source = page.duplicate();
+		source.clear();
+		long position = (long) pageId * PAGE_SIZE;
+		
+		while(source.hasRemaining()) {
+			data.write(source, position + source.position());
+		}
+		
+	}
+
+	/*
+	 * One slot in the buffer pool.
+	 */
+	private static final class Frame {
+		
+		int pageId;
+		final ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+		boolean dirty;
+		boolean referenced;
+		boolean pinned;
+		
+	}
+
+	/*
+	 * Walks the leaves in key order from a starting position. Call next() to move onto the first
+	 * pair, and keep calling it until it returns false.
+	 */
+	public class Cursor {
+		
+		private final long high;
+		private int leafPage;
+		private int index;
+		private long key;
+		private long value;
+		
+		private Cursor(int leafPage, int index, long high) {
+			
+			this.leafPage = leafPage;
+			this.index = index;
+			this.high = high;
+			
+		}
+		
+		/*
+		 * Moves onto the next pair in the range, returning false once there are no more.
+		 */
+		public boolean next() throws IOException {
+			
+			try {
+				
+				while(leafPage != 0) {
+					
+					ByteBuffer page = fetch(leafPage).page;
+					
+					if(index < page.getInt(COUNT_OFFSET)) {
+						
+						long nextKey = page.getLong(NODE_HEADER_SIZE + index * 8);
+						if(nextKey > high) {
+							leafPage = 0;
+							return false;
+						}
+						
+						key = nextKey;
+						value = page.getLong(LEAF_VALUES_OFFSET + index * 8);
+						index++;
+						return true;
+						
+					}
+					
+					//Used up this leaf (or it was left empty by removes), go on to the next
+					leafPage = page.getInt(NEXT_OFFSET);
+					index = 0;
+					
+				}
+				
+				return false;
+				
+			} finally {
+				endOperation();
+			}
+			
+		}
+		
+		public long getKey() {
+			return key;
+		}
+		
+		public long getValue() {
+			return value;
+		}
+		
+	}
+
+}
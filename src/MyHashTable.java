@@ -1,3 +1,10 @@
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
 /**
  * A hash table is a data structure that allows you to store a value with an associated key.
  * To access the value you provide the key to the hash table and it can return the value.
@@ -8,6 +15,14 @@
  * in case multiple key value pairs are mapped to the same index. Assuming that our distribution is
  * uniform across the array the hash table should have amortized insert, delete and look-up time
  * complexities which are O(1).
+ * The array starts with maxElements indexes. When the number of pairs passes the size of the array
+ * the table grows by incremental rehashing (as Redis does): a new array twice the size sits next
+ * to the old one and every add or remove moves a bucket across. Look-ups check both arrays until
+ * the move is finished, so no single add ever has to pay for copying the whole table.
+ * If a lot of keys land at the same index (bad hash codes, or keys picked to collide on purpose)
+ * the list at that index is turned into a balanced (AVL) tree ordered by hash code and then by
+ * compareTo for Comparable keys. This keeps the worst case look-up at O(log(n)) instead of O(n).
+ * The tree is turned back into a list when it shrinks again.
  * @author Andrew
  *
  * @param <K>
@@ -16,19 +31,49 @@
 
 public class MyHashTable<K, V> {
 	
-	private MyLinkedList<HashNode>[] array;
+	//Buckets migrated to the new array per add or remove while a resize is under way
+	private static final int REHASH_STEP = 1;
+	
+	//A bucket list longer than this becomes a tree, and a tree this small becomes a list again
+	private static final int TREEIFY_THRESHOLD = 8;
+	private static final int UNTREEIFY_THRESHOLD = 6;
+	
+	//Whether each key class is Comparable to itself, worked out by reflection once per class
+	//rather than on every comparison in a tree bucket
+	private static final ClassValue<Boolean> SELF_COMPARABLE = new ClassValue<Boolean>() {
+		
+		protected Boolean computeValue(Class<?> type) {
+			return isSelfComparable(type);
+		}
+		
+	};
+	
+	private Bucket[] array;
 	private int size;
 	
+	//While growing, the old array and a new array twice its size coexist.
+	//Buckets below rehashIndex in the old array have already been moved across.
+	private Bucket[] newArray;
+	private int rehashIndex;
+	
+	//Counts structural changes so iterators can detect the table changing under them
+	private int modCount;
+	
 	/*
-	 * Creates a new Hash Table object with underlying array size of maxElements
+	 * Creates a new Hash Table object with underlying array size of maxElements.
+	 * Once the table holds more than that many pairs it grows by incremental rehashing:
+	 * a new array twice the size is created and each following add or remove moves a
+	 * few buckets across, so no single call has to move the whole table.
 	 */
-	@SuppressWarnings("unchecked")
 	public MyHashTable(int maxElements) {
 		
-		array = (MyLinkedList<HashNode>[]) new MyLinkedList[maxElements];
-		for(int i = 0; i < maxElements; i++) {
-			array[i] = null;
+		if(maxElements <= 0) {
+			throw new IllegalArgumentException("Hash table must have at least one index");
 		}
+		
+		array = newBuckets(maxElements);
+		newArray = null;
+		rehashIndex = 0;
 		size = 0;
 		
 	}
@@ -38,34 +83,29 @@ public class MyHashTable<K, V> {
 	 */
 	public void add(K key, V value) {
 		
-		//Find the correct index to insert the pair
-		int index = key.hashCode() % array.length;
+		rehashStep();
 		
-		//Create a hashNode to store the pair in
-		HashNode toInsert = new HashNode(key, value);
+		//Replace the value if the key is already in either array
+		HashNode existing = findNode(key);
+		if(existing != null) {
+			existing.value = value;
+			return;
+		}
 		
-		//Create a linked list if there isn't one at the index
-		if(array[index] == null) {
-			
-			array[index] = new MyLinkedList<HashNode>();
-			
-		} else {
+		//New pairs always go in the newest array
+		Bucket[] target = newArray != null ? newArray : array;
+		HashNode toInsert = new HashNode(key, value);
 		
-			//Check if the pair is already in the list and delete if it is (reduce size)
-			for(int i = 0; i < array[index].getLength(); i++) {
-				
-				if(array[index].get(i).key.equals(toInsert.key)) {
-					array[index].delete(i);
-					size--;
-				}
-				
-			}
+		//Add the pair to the bucket at its index (increase size)
+		insertInto(target, toInsert);
+		size++;
+		modCount++;
 		
+		//Start growing once the average list has more than one pair
+		if(newArray == null && size > array.length) {
+			newArray = newBuckets(array.length * 2);
+			rehashIndex = 0;
 		}
-			
-		//Add the pair to the list (increase size)
-		array[index].insert(toInsert);
-		size++;
 		
 	}
 
@@ -74,19 +114,10 @@ public class MyHashTable<K, V> {
 	 */
 	public void printTable() {
 		
-		//Go to every index of the array
-		for(int i = 0; i < array.length; i++) {
-			
-			//If this index contains a linked list then print each element in it.
-			if(array[i] != null) {
-				
-				for(int j = 0; j < array[i].getLength(); j++) {
-					HashNode node = array[i].get(j);
-					System.out.print("[" + node.key.toString() + ":" + node.value.toString() + "] ");
-				}
-				
-			}
-			
+		EntryCursor cursor = cursor();
+		
+		while(cursor.next()) {
+			System.out.print("[" + cursor.getKey().toString() + ":" + cursor.getValue().toString() + "] ");
 		}
 		
 		System.out.println();
@@ -100,19 +131,9 @@ public class MyHashTable<K, V> {
 		
 		MyLinkedList<K> keys = new MyLinkedList<K>();
 		
-		//Go to every index of the array
-		for(int i = 0; i < array.length; i++) {
-			
-			//If this index contains a linked list add the key from each element.
-			if(array[i] != null) {
-				
-				for(int j = 0; j < array[i].getLength(); j++) {
-					HashNode node = array[i].get(j);
-					keys.insert(node.key);
-				}
-				
-			}
-			
+		EntryCursor cursor = cursor();
+		while(cursor.next()) {
+			keys.insert(cursor.getKey());
 		}
 		
 		return keys;
@@ -126,108 +147,869 @@ public class MyHashTable<K, V> {
 		
 		MyLinkedList<V> values = new MyLinkedList<V>();
 		
-		//Go to every index of the array
-		for(int i = 0; i < array.length; i++) {
+		EntryCursor cursor = cursor();
+		while(cursor.next()) {
+			values.insert(cursor.getValue());
+		}
+		
+		return values;
+		
+	}
+
+	/*
+	 * Calls the action with every key value pair in the table, walking the buckets in place.
+	 * Throws ConcurrentModificationException if the table is changed during the walk.
+	 */
+	public void forEach(BiConsumer<? super K, ? super V> action) {
+		
+		EntryCursor cursor = cursor();
+		
+		while(cursor.next()) {
+			action.accept(cursor.getKey(), cursor.getValue());
+		}
+		
+	}
+
+	/*
+	 * Returns an iterator over the keys which reads straight from the buckets.
+	 * The iterator is fail-fast, it throws ConcurrentModificationException if the table
+	 * is changed after it was created.
+	 */
+	public Iterator<K> keyIterator() {
+		
+		return new KeyIterator();
+		
+	}
+
+	/*
+	 * Returns an iterator over the values which reads straight from the buckets.
+	 * The iterator is fail-fast in the same way as keyIterator.
+	 */
+	public Iterator<V> valueIterator() {
+		
+		return new ValueIterator();
+		
+	}
+
+	/*
+	 * Returns a cursor over the key value pairs. Unlike an iterator it doesn't need an
+	 * object per pair: call next() to move to the next pair and then read getKey() and getValue().
+	 * The cursor is fail-fast in the same way as keyIterator.
+	 */
+	public EntryCursor cursor() {
+		
+		return new EntryCursor();
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(K key) {
+		
+		return findNode(key) != null;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(K key) {
+		
+		rehashStep();
+		
+		if(removeFrom(array, key) || (newArray != null && removeFrom(newArray, key))) {
+			size--;
+			modCount++;
+		}
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to in the hash table.
+	 */
+	public V get(K key) {
+		
+		HashNode node = findNode(key);
+		
+		if(node == null) {
+			return null;
+		}
+		
+		return node.value;
+		
+	}
+
+	/*
+	 * Returns true while the table is part way through growing into a bigger array.
+	 */
+	boolean isRehashing() {
+		
+		return newArray != null;
+		
+	}
+
+	/*
+	 * Finds the node holding key in either array, or null if the key isn't in the table.
+	 */
+	private HashNode findNode(K key) {
+		
+		HashNode node = findIn(array, key);
+		
+		if(node == null && newArray != null) {
+			node = findIn(newArray, key);
+		}
+		
+		return node;
+		
+	}
+
+	private HashNode findIn(Bucket[] buckets, K key) {
+		
+		//Hash the key to find its index
+		int hash = key.hashCode();
+		Bucket bucket = buckets[indexFor(hash, buckets.length)];
+		
+		//Check if the key can be found in the bucket at that index
+		if(bucket == null) {
+			return null;
+		}
+		
+		return bucket.find(key, hash);
+		
+	}
+
+	/*
+	 * Removes key from the given array, returns true if it was there.
+	 */
+	private boolean removeFrom(Bucket[] buckets, K key) {
+		
+		int hash = key.hashCode();
+		int index = indexFor(hash, buckets.length);
+		Bucket bucket = buckets[index];
+		
+		if(bucket != null && bucket.remove(key, hash)) {
+			
+			if(bucket.count == 0) {
+				buckets[index] = null;
+			}
+			return true;
 			
-			//If this index contains a linked list add the key from each element.
-			if(array[i] != null) {
+		}
+		
+		return false;
+		
+	}
+
+	/*
+	 * Adds a pair which is known not to be in the table to its bucket in the given array.
+	 */
+	private void insertInto(Bucket[] buckets, HashNode pair) {
+		
+		int index = indexFor(pair.hash, buckets.length);
+		
+		//Create a bucket if there isn't one at the index
+		if(buckets[index] == null) {
+			buckets[index] = new Bucket();
+		}
+		
+		buckets[index].insert(pair);
+		
+	}
+
+	/*
+	 * Moves up to REHASH_STEP buckets from the old array to the new one, skipping over
+	 * at most ten times that many empty indexes so a sparse table can't make one call slow.
+	 * When the old array is empty the new array takes its place.
+	 */
+	private void rehashStep() {
+		
+		if(newArray == null) {
+			return;
+		}
+		
+		int moved = 0;
+		int emptyVisits = REHASH_STEP * 10;
+		
+		while(moved < REHASH_STEP && rehashIndex < array.length) {
+			
+			Bucket bucket = array[rehashIndex];
+			
+			if(bucket == null) {
 				
-				for(int j = 0; j < array[i].getLength(); j++) {
-					HashNode node = array[i].get(j);
-					values.insert(node.value);
+				rehashIndex++;
+				if(--emptyVisits == 0) {
+					break;
 				}
+				continue;
 				
 			}
 			
+			//Move every pair in this bucket to its place in the new array
+			if(bucket.root != null) {
+				
+				for(TreeNode node = firstNode(bucket.root); node != null; node = successor(node)) {
+					insertInto(newArray, node.pair);
+				}
+				
+			} else {
+				
+				for(LinkedListNode<HashNode> node = bucket.list.getHead(); node != null; node = node.getNext()) {
+					insertInto(newArray, node.getElement());
+				}
+				
+			}
+			
+			array[rehashIndex] = null;
+			rehashIndex++;
+			moved++;
+			
 		}
 		
-		return values;
+		if(rehashIndex == array.length) {
+			
+			//Everything has been moved
+			array = newArray;
+			newArray = null;
+			rehashIndex = 0;
+			
+		}
+		
+		modCount++;
 		
 	}
 
 	/*
-	 * Returns true if the given key maps to a value in the hash table
+	 * Turns a hash code into an index of an array of the given length.
+	 * The sign bit is masked off so negative hash codes still give a valid index.
 	 */
-	public boolean contains(K key) {
-				
-		//Hash the key to find its index
-		int index = key.hashCode() % array.length;
+	private static int indexFor(int hash, int length) {
 		
-		//Check if the key can be found in the list at that index
-		if(array[index] != null) {
+		return (hash & 0x7fffffff) % length;
+		
+	}
 
-			for(int i = 0; i < array[index].getLength(); i++) {
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Bucket[] newBuckets(int length) {
+		
+		return (Bucket[]) new MyHashTable.Bucket[length];
+		
+	}
+
+	/*
+	 * Walks the buckets in place, remembering the bucket index and the list or tree node it is up to.
+	 */
+	private abstract class HashIterator {
+		
+		private Bucket[] buckets;
+		private int bucket;
+		private LinkedListNode<HashNode> nextListNode;
+		private TreeNode nextTreeNode;
+		private final int expectedModCount;
+		
+		HashIterator() {
+			
+			expectedModCount = modCount;
+			buckets = array;
+			bucket = 0;
+			advanceBucket();
+			
+		}
+		
+		public boolean hasNext() {
+			
+			return nextListNode != null || nextTreeNode != null;
+			
+		}
+		
+		HashNode nextHashNode() {
+			
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			
+			HashNode result;
+			
+			if(nextTreeNode != null) {
 				
-				if(array[index].get(i).key.equals(key)) {
-					return true;
+				result = nextTreeNode.pair;
+				nextTreeNode = successor(nextTreeNode);
+				
+			} else if(nextListNode != null) {
+				
+				result = nextListNode.getElement();
+				nextListNode = nextListNode.getNext();
+				
+			} else {
+				
+				throw new NoSuchElementException();
+				
+			}
+			
+			if(!hasNext()) {
+				advanceBucket();
+			}
+			
+			return result;
+			
+		}
+		
+		/*
+		 * Moves to the first node of the next non-empty bucket, or leaves both nodes null if there
+		 * are none left. While the table is growing the new array is walked after the old one.
+		 */
+		private void advanceBucket() {
+			
+			while(buckets != null) {
+				
+				while(bucket < buckets.length) {
+					
+					Bucket next = buckets[bucket++];
+					
+					if(next != null && next.count > 0) {
+						
+						if(next.root != null) {
+							nextTreeNode = firstNode(next.root);
+						} else {
+							nextListNode = next.list.getHead();
+						}
+						return;
+						
+					}
+					
 				}
 				
+				buckets = (buckets == array) ? newArray : null;
+				bucket = 0;
+				
 			}
 			
 		}
 		
-		return false;
+	}
+
+	private final class KeyIterator extends HashIterator implements Iterator<K> {
+		
+		public K next() {
+			return nextHashNode().key;
+		}
+		
+	}
+
+	private final class ValueIterator extends HashIterator implements Iterator<V> {
+		
+		public V next() {
+			return nextHashNode().value;
+		}
 		
 	}
 
 	/*
-	 * Removes the given key if it maps to a value in the hash table
+	 * A cursor over the key value pairs in the table, see MyHashTable.cursor().
 	 */
-	public void remove(K key) {
+	public final class EntryCursor extends HashIterator {
 		
-		//Hash the key to find its index
-		int index = key.hashCode() % array.length;
+		private HashNode current;
+		
+		private EntryCursor() {
+		}
+		
+		/*
+		 * Moves to the next pair. Returns false once every pair has been visited.
+		 */
+		public boolean next() {
+			
+			if(!hasNext()) {
+				current = null;
+				return false;
+			}
+			
+			current = nextHashNode();
+			return true;
+			
+		}
+		
+		public K getKey() {
+			
+			if(current == null) {
+				throw new NoSuchElementException();
+			}
+			
+			return current.key;
+			
+		}
+		
+		public V getValue() {
+			
+			if(current == null) {
+				throw new NoSuchElementException();
+			}
+			
+			return current.value;
+			
+		}
 		
-		//Check if the key can be found in the list at that index
-		if(array[index] != null) {
+	}
 
-			for(int i = 0; i < array[index].getLength(); i++) {
+	/*
+	 * Returns the smallest node of the tree with the given root.
+	 */
+	private TreeNode firstNode(TreeNode root) {
+		
+		TreeNode node = root;
+		while(node.left != null) {
+			node = node.left;
+		}
+		
+		return node;
+		
+	}
+
+	/*
+	 * Returns the node after the given one in tree order, or null if it is the last.
+	 */
+	private TreeNode successor(TreeNode node) {
+		
+		if(node.right != null) {
+			return firstNode(node.right);
+		}
+		
+		//Climb until we come up from a left child
+		TreeNode child = node;
+		TreeNode parent = node.parent;
+		
+		while(parent != null && child == parent.right) {
+			child = parent;
+			parent = parent.parent;
+		}
+		
+		return parent;
+		
+	}
+
+	/*
+	 * Compares two keys which have the same hash code using compareTo, if they are the same class
+	 * and that class is Comparable to itself. Returns 0 if they can't be ordered this way.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareKeys(Object a, Object b) {
+		
+		if(a.getClass() != b.getClass() || !SELF_COMPARABLE.get(a.getClass())) {
+			return 0;
+		}
+		
+		return ((Comparable) a).compareTo(b);
+		
+	}
+
+	/*
+	 * Returns true if the class implements Comparable<itself>, e.g. String or Integer.
+	 */
+	private static boolean isSelfComparable(Class<?> c) {
+		
+		if(!Comparable.class.isAssignableFrom(c)) {
+			return false;
+		}
+		
+		for(Type type: c.getGenericInterfaces()) {
+			
+			if(type instanceof ParameterizedType) {
 				
-				if(array[index].get(i).key.equals(key)) {
-					//Remove the element
-					array[index].delete(i);
-					size--;
+				ParameterizedType p = (ParameterizedType) type;
+				if(p.getRawType() == Comparable.class && p.getActualTypeArguments()[0] == c) {
+					return true;
 				}
 				
 			}
 			
 		}
 		
+		return false;
+		
 	}
 
 	/*
-	 * Returns the value which the given key maps to in the hash table.
+	 * Orders two keys with equal hash codes and no compareTo order. Only used when inserting,
+	 * it just needs to be consistent.
 	 */
-	public V get(K key) {
+	private static int tieBreak(Object a, Object b) {
 		
-		//Hash the key to find its index
-		int index = key.hashCode() % array.length;
+		int order = a.getClass().getName().compareTo(b.getClass().getName());
 		
-		//Check if the key can be found in the list at that index
-		if(array[index] != null) {
+		if(order == 0) {
+			order = System.identityHashCode(a) <= System.identityHashCode(b) ? -1 : 1;
+		}
+		
+		return order;
+		
+	}
 
-			for(int i = 0; i < array[index].getLength(); i++) {
+	/*
+	 * The pairs at one index of the array. Normally they are kept in a short linked list, but
+	 * once there are more than TREEIFY_THRESHOLD of them they are moved into an AVL tree.
+	 * Exactly one of list and root is in use at a time.
+	 */
+	private final class Bucket {
+		
+		private MyLinkedList<HashNode> list;
+		private TreeNode root;
+		private int count;
+		
+		Bucket() {
+			
+			list = new MyLinkedList<HashNode>();
+			root = null;
+			count = 0;
+			
+		}
+		
+		HashNode find(K key, int hash) {
+			
+			if(root != null) {
 				
-				if(array[index].get(i).key.equals(key)) {
-					return array[index].get(i).value;
+				TreeNode node = findTreeNode(root, key, hash);
+				return node == null ? null : node.pair;
+				
+			}
+			
+			for(LinkedListNode<HashNode> node = list.getHead(); node != null; node = node.getNext()) {
+				
+				HashNode pair = node.getElement();
+				if(pair.hash == hash && pair.key.equals(key)) {
+					return pair;
 				}
 				
 			}
 			
+			return null;
+			
 		}
 		
-		return null;
+		/*
+		 * Adds a pair whose key is not already in the bucket.
+		 */
+		void insert(HashNode pair) {
+			
+			if(root != null) {
+				
+				insertTreeNode(pair);
+				
+			} else {
+				
+				list.insert(pair);
+				if(count + 1 > TREEIFY_THRESHOLD) {
+					treeify();
+				}
+				
+			}
+			
+			count++;
+			
+		}
+		
+		boolean remove(K key, int hash) {
+			
+			if(root != null) {
+				
+				TreeNode node = findTreeNode(root, key, hash);
+				if(node == null) {
+					return false;
+				}
+				
+				removeTreeNode(node);
+				count--;
+				
+				if(count <= UNTREEIFY_THRESHOLD) {
+					untreeify();
+				}
+				
+				return true;
+				
+			}
+			
+			//Unlink through the iterator so the list isn't walked a second time to find the index
+			Iterator<HashNode> pairs = list.iterator();
+			while(pairs.hasNext()) {
+				
+				HashNode pair = pairs.next();
+				if(pair.hash == hash && pair.key.equals(key)) {
+					pairs.remove();
+					count--;
+					return true;
+				}
+				
+			}
+			
+			return false;
+			
+		}
+		
+		private void treeify() {
+			
+			for(LinkedListNode<HashNode> node = list.getHead(); node != null; node = node.getNext()) {
+				insertTreeNode(node.getElement());
+			}
+			
+			list = null;
+			
+		}
+		
+		private void untreeify() {
+			
+			list = new MyLinkedList<HashNode>();
+			
+			for(TreeNode node = firstNode(root); node != null; node = successor(node)) {
+				list.insertLast(node.pair);
+			}
+			
+			root = null;
+			
+		}
+		
+		/*
+		 * Searches the subtree for key. Where the keys can't be told apart by hash or compareTo
+		 * the right subtree is searched first and then the search carries on down the left.
+		 */
+		private TreeNode findTreeNode(TreeNode start, K key, int hash) {
+			
+			TreeNode node = start;
+			
+			while(node != null) {
+				
+				if(hash < node.pair.hash) {
+					
+					node = node.left;
+					
+				} else if(hash > node.pair.hash) {
+					
+					node = node.right;
+					
+				} else if(node.pair.key.equals(key)) {
+					
+					return node;
+					
+				} else {
+					
+					int order = compareKeys(key, node.pair.key);
+					
+					if(order < 0) {
+						node = node.left;
+					} else if(order > 0) {
+						node = node.right;
+					} else {
+						
+						TreeNode found = findTreeNode(node.right, key, hash);
+						if(found != null) {
+							return found;
+						}
+						node = node.left;
+						
+					}
+					
+				}
+				
+			}
+			
+			return null;
+			
+		}
+		
+		private void insertTreeNode(HashNode pair) {
+			
+			if(root == null) {
+				root = new TreeNode(pair, null);
+				return;
+			}
+			
+			//Walk down to the leaf where the pair belongs
+			TreeNode parent = root;
+			
+			while(true) {
+				
+				int order = order(pair, parent.pair);
+				TreeNode next = order < 0 ? parent.left : parent.right;
+				
+				if(next == null) {
+					
+					TreeNode node = new TreeNode(pair, parent);
+					if(order < 0) {
+						parent.left = node;
+					} else {
+						parent.right = node;
+					}
+					break;
+					
+				}
+				
+				parent = next;
+				
+			}
+			
+			rebalanceFrom(parent);
+			
+		}
+		
+		private void removeTreeNode(TreeNode node) {
+			
+			//A node with two children swaps pairs with its successor, which has at most one child
+			if(node.left != null && node.right != null) {
+				TreeNode next = firstNode(node.right);
+				node.pair = next.pair;
+				node = next;
+			}
+			
+			TreeNode child = node.left != null ? node.left : node.right;
+			TreeNode parent = node.parent;
+			
+			replaceChild(parent, node, child);
+			
+			rebalanceFrom(parent);
+			
+		}
+		
+		/*
+		 * The full insertion order: hash code, then compareTo, then the tie break.
+		 */
+		private int order(HashNode a, HashNode b) {
+			
+			if(a.hash != b.hash) {
+				return a.hash < b.hash ? -1 : 1;
+			}
+			
+			int order = compareKeys(a.key, b.key);
+			
+			if(order == 0) {
+				order = tieBreak(a.key, b.key);
+			}
+			
+			return order;
+			
+		}
+		
+		/*
+		 * Walks from node up to the root fixing heights and rotating any node
+		 * whose subtrees' heights differ by more than one.
+		 */
+		private void rebalanceFrom(TreeNode node) {
+			
+			while(node != null) {
+				
+				TreeNode parent = node.parent;
+				updateHeight(node);
+				int balance = height(node.left) - height(node.right);
+				
+				if(balance > 1) {
+					
+					//Left heavy, a left-right case needs the left child rotated first
+					if(height(node.left.left) < height(node.left.right)) {
+						rotateLeft(node.left);
+					}
+					rotateRight(node);
+					
+				} else if(balance < -1) {
+					
+					//Right heavy, a right-left case needs the right child rotated first
+					if(height(node.right.right) < height(node.right.left)) {
+						rotateRight(node.right);
+					}
+					rotateLeft(node);
+					
+				}
+				
+				node = parent;
+				
+			}
+			
+		}
+		
+		private void rotateLeft(TreeNode node) {
+			
+			TreeNode pivot = node.right;
+			
+			node.right = pivot.left;
+			if(pivot.left != null) {
+				pivot.left.parent = node;
+			}
+			
+			replaceChild(node.parent, node, pivot);
+			pivot.left = node;
+			node.parent = pivot;
+			
+			updateHeight(node);
+			updateHeight(pivot);
+			
+		}
+		
+		private void rotateRight(TreeNode node) {
+			
+			TreeNode pivot = node.left;
+			
+			node.left = pivot.right;
+			if(pivot.right != null) {
+				pivot.right.parent = node;
+			}
+			
+			replaceChild(node.parent, node, pivot);
+			pivot.right = node;
+			node.parent = pivot;
+			
+			updateHeight(node);
+			updateHeight(pivot);
+			
+		}
+		
+		/*
+		 * Puts newChild where oldChild was under parent (or at the root if parent is null).
+		 */
+		private void replaceChild(TreeNode parent, TreeNode oldChild, TreeNode newChild) {
+			
+			if(parent == null) {
+				root = newChild;
+			} else if(parent.left == oldChild) {
+				parent.left = newChild;
+			} else {
+				parent.right = newChild;
+			}
+			
+			if(newChild != null) {
+				newChild.parent = parent;
+			}
+			
+		}
+		
+		private int height(TreeNode node) {
+			
+			return node == null ? 0 : node.height;
+			
+		}
+		
+		private void updateHeight(TreeNode node) {
+			
+			node.height = Math.max(height(node.left), height(node.right)) + 1;
+			
+		}
 		
 	}
-	
+
 	private class HashNode {
 		
 		public K key;
 		public V value;
+		public final int hash;
 		
 		public HashNode(K key, V value) {
 			this.key = key;
 			this.value = value;
+			this.hash = key.hashCode();
 		}
 		
 		boolean equalsHashNode(HashNode other) {
@@ -241,4 +1023,28 @@ public class MyHashTable<K, V> {
 		
 	}
 
+	/*
+	 * A node of the AVL tree used by a crowded bucket. Nodes are ordered by hash code, then by
+	 * compareTo if both keys are the same Comparable class, and then by an arbitrary but fixed
+	 * tie break so that every key has a place. Look-ups can't use the tie break (they don't have
+	 * the stored key object yet), so when it is the only thing separating two keys both subtrees
+	 * are searched, which is what HashMap does too.
+	 * Nodes keep a parent pointer so the tree can be walked in order without a stack.
+	 */
+	private final class TreeNode {
+		
+		HashNode pair;
+		TreeNode left;
+		TreeNode right;
+		TreeNode parent;
+		int height;
+		
+		TreeNode(HashNode pair, TreeNode parent) {
+			this.pair = pair;
+			this.parent = parent;
+			this.height = 1;
+		}
+		
+	}
+
 }
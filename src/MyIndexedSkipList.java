@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An indexed skip list is a list ordered by position, like MyLinkedList, which can also find
+ * any position in O(log n) expected time. Every node is in the bottom level linked list, about
+ * half of the nodes are also in the level above, a quarter in the one above that and so on.
+ * Each forward link remembers its span, the number of positions it jumps over, so a search can
+ * run along the high levels adding up spans until it is just before the index it wants and then
+ * drop down a level.
+ * get, insert and delete at an index are all O(log n) expected, and inserting or deleting only
+ * relinks the nodes either side at each level, so nothing is shifted like in an array.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+public class MyIndexedSkipList<T> implements Iterable<T> {
+	
+	private static final int MAX_LEVEL = 32;
+	
+	//The head holds no element and sits at position -1, it has every level
+	private final SkipNode<T> head;
+	private int level;
+	private int length;
+	private int modCount;
+	
+	public MyIndexedSkipList() {
+		
+		head = new SkipNode<T>(null, MAX_LEVEL);
+		level = 1;
+		length = 0;
+		head.span[0] = 1;
+		
+	}
+
+	/*
+	 * Inserts the given element at the given index.
+	 * If the index is beyond the end of the list it will be inserted at the end.
+	 */
+	public void insert(T element, int index) {
+		
+		if(index >= length || index < 0) {
+			index = length;
+		}
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		SkipNode<T>[] update = new SkipNode[MAX_LEVEL];
+		int[] rank = new int[MAX_LEVEL];
+		findPredecessors(index, update, rank);
+		
+		int nodeLevel = randomLevel();
+		
+		if(nodeLevel > level) {
+			
+			//The new levels start off as one link from the head past the end of the list
+			for(int i = level; i < nodeLevel; i++) {
+				update[i] = head;
+				rank[i] = 0;
+				head.next[i] = null;
+				head.span[i] = length + 1;
+			}
+			level = nodeLevel;
+			
+		}
+		
+		SkipNode<T> node = new SkipNode<T>(element, nodeLevel);
+		
+		for(int i = 0; i < nodeLevel; i++) {
+			
+			//Split the predecessor's span in two around the new node
+			node.next[i] = update[i].next[i];
+			update[i].next[i] = node;
+			node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+			update[i].span[i] = rank[0] - rank[i] + 1;
+			
+		}
+		
+		//Higher links now jump over one more position
+		for(int i = nodeLevel; i < level; i++) {
+			update[i].span[i]++;
+		}
+		
+		length++;
+		modCount++;
+		
+	}
+
+	/*
+	 * Insert the element given at the start of the list
+	 */
+	public void insert(T element) {
+		
+		insert(element, 0);
+		
+	}
+
+	/*
+	 * Insert the element given at the end of the list
+	 */
+	public void insertLast(T element) {
+		
+		insert(element, length);
+		
+	}
+
+	/*
+	 * Returns the element at the index given.
+	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
+	 */
+	public T get(int index) {
+		
+		checkIndex(index);
+		
+		SkipNode<T> current = head;
+		int position = -1;
+		
+		for(int i = level - 1; i >= 0; i--) {
+			
+			while(current.next[i] != null && position + current.span[i] <= index) {
+				position += current.span[i];
+				current = current.next[i];
+			}
+			
+			if(position == index) {
+				return current.element;
+			}
+			
+		}
+		
+		//Level 0 spans are always 1 so the loop above always finds the index
+		throw new IllegalStateException("Skip list spans are inconsistent");
+		
+	}
+
+	/*
+	 * Replaces the element at the index given and returns the old element.
+	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
+	 */
+	public T set(int index, T element) {
+		
+		checkIndex(index);
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		SkipNode<T>[] update = new SkipNode[MAX_LEVEL];
+		findPredecessors(index, update, new int[MAX_LEVEL]);
+		
+		SkipNode<T> node = update[0].next[0];
+		T oldElement = node.element;
+		node.element = element;
+		
+		return oldElement;
+		
+	}
+
+	/*
+	 * Removes the element at the index given and returns it.
+	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
+	 */
+	public T delete(int index) {
+		
+		checkIndex(index);
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		SkipNode<T>[] update = new SkipNode[MAX_LEVEL];
+		findPredecessors(index, update, new int[MAX_LEVEL]);
+		
+		SkipNode<T> node = update[0].next[0];
+		
+		for(int i = 0; i < level; i++) {
+			
+			if(update[i].next[i] == node) {
+				
+				//Join the two spans either side of the node
+				update[i].span[i] += node.span[i] - 1;
+				update[i].next[i] = node.next[i];
+				
+			} else {
+				
+				update[i].span[i]--;
+				
+			}
+			
+		}
+		
+		//Drop levels which have nothing left in them
+		while(level > 1 && head.next[level - 1] == null) {
+			level--;
+		}
+		
+		length--;
+		modCount++;
+		
+		return node.element;
+		
+	}
+
+	/*
+	 * Deletes the first element in the list and returns the element.
+	 * If the list is empty, throws ArrayIndexOutOfBoundsException
+	 */
+	public T delete() {
+		
+		return delete(0);
+		
+	}
+
+	/*
+	 * Deletes the last element in the list, and returns the element.
+	 * If the list is empty, throws ArrayIndexOutOfBoundsException
+	 */
+	public T deleteLast() {
+		
+		return delete(length - 1);
+		
+	}
+
+	/*
+	 * Returns the number of elements in the list
+	 */
+	public int getLength() {
+		
+		return length;
+		
+	}
+
+	/*
+	 * Returns an iterator over the elements from first to last, which walks the bottom level.
+	 */
+	public Iterator<T> iterator() {
+		
+		return new Iterator<T>() {
+			
+			private SkipNode<T> next = head.next[0];
+			private final int expectedModCount = modCount;
+			
+			public boolean hasNext() {
+				return next != null;
+			}
+			
+			public T next() {
+				
+				if(modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				
+				if(next == null) {
+					throw new NoSuchElementException();
+				}
+				
+				T element = next.element;
+				next = next.next[0];
+				return element;
+				
+			}
+			
+		};
+		
+	}
+
+	/*
+	 * Prints out the list using the object's toString method separated by commas
+	 */
+	public void printList() {
+		
+		System.out.print(toString() + "\n");
+		
+	}
+
+	/*
+	 * Represents the list as a string using the T object's toString method separated by commas
+	 */
+	public String toString() {
+		
+		return MyWritable.render(this::writeTo, length);
+		
+	}
+
+	/*
+	 * Writes the list to out in the same format as toString, walking the bottom level.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		if(length == 0) {
+			out.append("empty");
+			return;
+		}
+		
+		String separator = "";
+		
+		for(SkipNode<T> node = head.next[0]; node != null; node = node.next[0]) {
+			out.append(separator).append(node.element.toString());
+			separator = ", ";
+		}
+		
+	}
+
+	/*
+	 * Fills update with the last node before position index on every level in use, and rank
+	 * with how many elements come up to and including that node (so rank 0 is the head).
+	 */
+	private void findPredecessors(int index, SkipNode<T>[] update, int[] rank) {
+		
+		SkipNode<T> current = head;
+		
+		for(int i = level - 1; i >= 0; i--) {
+			
+			rank[i] = (i == level - 1) ? 0 : rank[i + 1];
+			
+			while(current.next[i] != null && rank[i] + current.span[i] <= index) {
+				rank[i] += current.span[i];
+				current = current.next[i];
+			}
+			
+			update[i] = current;
+			
+		}
+		
+	}
+
+	private void checkIndex(int index) {
+		
+		if(index >= length || index < 0) {
+			
+			//Element does not exist
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+			
+		}
+		
+	}
+
+	/*
+	 * Picks how many levels a new node is in. Each extra level has half the chance of the one below.
+	 */
+	private static int randomLevel() {
+		
+		int bits = ThreadLocalRandom.current().nextInt();
+		return Integer.numberOfTrailingZeros(bits | (1 << (MAX_LEVEL - 1))) + 1;
+		
+	}
+
+	private static final class SkipNode<T> {
+		
+		T element;
+		final SkipNode<T>[] next;
+		
+		//span[i] is the number of positions from this node to next[i], or to one past the end
+		final int[] span;
+		
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		SkipNode(T element, int level) {
+			this.element = element;
+			next = new SkipNode[level];
+			span = new int[level];
+		}
+		
+	}
+
+}
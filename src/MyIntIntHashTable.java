@@ -0,0 +1,323 @@
+/**
+ * A hash table from int keys to int values. It works the same way as MyOpenHashTable but
+ * stores the keys and values in int arrays, so nothing is boxed and no objects are created
+ * by add, get, contains, remove or increment once the table has grown to its working size.
+ * Key 0 is used to mark an empty slot, so the pair for key 0 (if any) is kept off to the side.
+ * The key is run through a mixing function before picking a slot, so negative keys and keys
+ * that only differ in their high bits still spread evenly.
+ * @author Andrew
+ *
+ */
+
+public class MyIntIntHashTable {
+	
+	private static final int EMPTY = 0;
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private int[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+	private int threshold;
+	
+	private boolean hasZeroKey;
+	private int zeroValue;
+	
+	public MyIntIntHashTable() {
+		
+		this(16);
+		
+	}
+
+	/*
+	 * Creates a new table big enough to hold expectedElements without resizing.
+	 */
+	public MyIntIntHashTable(int expectedElements) {
+		
+		if(expectedElements < 0) {
+			throw new IllegalArgumentException("Expected elements must not be negative");
+		}
+		
+		int capacity = 2;
+		while(capacity < (1 << 30) && capacity * LOAD_FACTOR < expectedElements) {
+			capacity *= 2;
+		}
+		
+		allocate(capacity);
+		size = 0;
+		
+	}
+
+	/*
+	 * Adds the given key value pair to the hash table, replacing the value if the key
+	 * is already present.
+	 */
+	public void add(int key, int value) {
+		
+		if(key == EMPTY) {
+			
+			if(!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return;
+			
+		}
+		
+		int index = slotFor(key);
+		
+		if(keys[index] == key) {
+			values[index] = value;
+		} else {
+			insertAt(index, key, value);
+		}
+		
+	}
+
+	/*
+	 * Adds delta to the value stored for key (treating a missing key as 0) and returns the new value.
+	 */
+	public int increment(int key, int delta) {
+		
+		if(key == EMPTY) {
+			
+			if(!hasZeroKey) {
+				hasZeroKey = true;
+				zeroValue = 0;
+				size++;
+			}
+			zeroValue += delta;
+			return zeroValue;
+			
+		}
+		
+		int index = slotFor(key);
+		
+		if(keys[index] == key) {
+			values[index] += delta;
+			return values[index];
+		}
+		
+		insertAt(index, key, delta);
+		return delta;
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to, or defaultValue if the key is not in the table.
+	 */
+	public int get(int key, int defaultValue) {
+		
+		if(key == EMPTY) {
+			return hasZeroKey ? zeroValue : defaultValue;
+		}
+		
+		int index = slotFor(key);
+		
+		return keys[index] == key ? values[index] : defaultValue;
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(int key) {
+		
+		if(key == EMPTY) {
+			return hasZeroKey;
+		}
+		
+		return keys[slotFor(key)] == key;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(int key) {
+		
+		if(key == EMPTY) {
+			
+			if(hasZeroKey) {
+				hasZeroKey = false;
+				size--;
+			}
+			return;
+			
+		}
+		
+		int hole = slotFor(key);
+		
+		if(keys[hole] != key) {
+			return;
+		}
+		
+		//Backward shift deletion, see MyOpenHashTable.remove
+		int next = (hole + 1) & mask;
+		
+		while(keys[next] != EMPTY) {
+			
+			int home = mix(keys[next]) & mask;
+			
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			
+			next = (next + 1) & mask;
+			
+		}
+		
+		keys[hole] = EMPTY;
+		size--;
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns an array of all the keys in the hash table
+	 */
+	public int[] getKeys() {
+		
+		int[] result = new int[size];
+		int j = 0;
+		
+		if(hasZeroKey) {
+			result[j++] = EMPTY;
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				result[j++] = keys[i];
+			}
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Returns an array of all the values in the hash table, in the same order as getKeys
+	 */
+	public int[] getValues() {
+		
+		int[] result = new int[size];
+		int j = 0;
+		
+		if(hasZeroKey) {
+			result[j++] = zeroValue;
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				result[j++] = values[i];
+			}
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Prints a list of all the key value pairs in the table
+	 */
+	public void printTable() {
+		
+		if(hasZeroKey) {
+			System.out.print("[0:" + zeroValue + "] ");
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				System.out.print("[" + keys[i] + ":" + values[i] + "] ");
+			}
+		}
+		
+		System.out.println();
+		
+	}
+
+	/*
+	 * Returns the slot holding key, or the empty slot where it would be inserted.
+	 */
+	private int slotFor(int key) {
+		
+		int index = mix(key) & mask;
+		
+		while(keys[index] != EMPTY && keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		
+		return index;
+		
+	}
+
+	/*
+	 * Puts a new pair in the given empty slot and grows the table if needed.
+	 */
+	private void insertAt(int index, int key, int value) {
+		
+		keys[index] = key;
+		values[index] = value;
+		size++;
+		
+		if(size > threshold) {
+			resize(keys.length * 2);
+		}
+		
+	}
+
+	private void resize(int newCapacity) {
+		
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		
+		allocate(newCapacity);
+		
+		for(int i = 0; i < oldKeys.length; i++) {
+			
+			if(oldKeys[i] != EMPTY) {
+				int index = slotFor(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+			
+		}
+		
+	}
+
+	private void allocate(int capacity) {
+		
+		keys = new int[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		threshold = Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+		
+	}
+
+	/*
+	 * The MurmurHash3 finalizer, every bit of the key affects every bit of the result.
+	 */
+	private static int mix(int key) {
+		
+		int h = key;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+		
+	}
+
+}
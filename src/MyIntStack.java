@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * A stack of int values. It works the same way as MyStack but keeps the values in a int
+ * array, so pushing and popping never box a value or create an object.
+ * @author Andrew
+ *
+ */
+
+public class MyIntStack {
+	
+	private int[] stack;
+	private int size;
+	
+	public MyIntStack() {
+		this(16);
+	}
+
+	/*
+	 * Creates a stack with room for initialCapacity values before it needs to grow.
+	 */
+	public MyIntStack(int initialCapacity) {
+		
+		stack = new int[Math.max(initialCapacity, 1)];
+		size = 0;
+		
+	}
+
+	/*
+	 * Add the value to the top of the stack.
+	 */
+	public void push(int value) {
+		
+		if(size == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		
+		stack[size++] = value;
+		
+	}
+
+	/*
+	 * Remove a value from the top of the stack.
+	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
+	 */
+	public int pop() {
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return stack[--size];
+		
+	}
+
+	/*
+	 * Returns the string implementation of the stack.
+	 */
+	public String toString() {
+		
+		if(size == 0) {
+			return "empty";
+		}
+		
+		//List from the top of the stack down, the buffer is sized for the longest possible values
+		//(Integer.MIN_VALUE is 11 characters, plus 2 for the separator)
+		StringBuilder builder = new StringBuilder(size * 13);
+		builder.append(stack[size - 1]);
+		
+		for(int i = size - 2; i >= 0; i--) {
+			builder.append(", ").append(stack[i]);
+		}
+		
+		return builder.toString();
+		
+	}
+
+	/*
+	 * Returns true if there is a value on the stack
+	 */
+	public boolean hasNext() {
+		
+		return size > 0;
+		
+	}
+
+	/*
+	 * Returns the number of values on the stack
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+}
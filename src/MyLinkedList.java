@@ -1,32 +1,45 @@
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
 /**
  * A linked list is a linear data structure which is time efficient for adding and deleting elements.
  * Inserting at the head takes O(1) constant time, and the same can be said for the tail if the reference
  * to the tail is tracked. Accessing data takes time O(n) however and there is more space required than for an array as
  * each node requires its own object.
+ * This list is doubly linked: every node also points back at the one before it. That makes deleting the
+ * last element O(1), lets index access walk in from whichever end is closer, and lets a ListIterator
+ * insert and remove elements where it is in O(1). Looping over the list with an iterator (or for-each)
+ * is O(n) overall, whereas calling get(i) for every i is O(n^2).
  * @author Andrew
  *
  * @param <T> The type of the elements to be stored in the LinkedList
  */
 
-public class MyLinkedList<T> {
+public class MyLinkedList<T> implements Iterable<T> {
 	
 	private LinkedListNode<T> head;
 	private int length;
 	private LinkedListNode<T> tail;
 	
+	//Counts structural changes so iterators can detect the list changing under them
+	private int modCount;
+	
 	public MyLinkedList() {
 		
 		head = null;
 		length = 0;
 		
 	}
-	
+
 	/*
 	 * Insert element at index. If index doesn't exist then insert at the end.
 	 */
-
-	public void insert(T element, int index) {
 	
+	public void insert(T element, int index) {
+		
 		if(head == null || index == 0) {
 			
 			//Need to insert at the start
@@ -37,41 +50,29 @@ public class MyLinkedList<T> {
 			//Need to insert at the end of the list
 			insertLast(element);
 			
-		} else {	
-				
-			//Need to insert at index which is not the end
-			LinkedListNode<T> currentNode = head;
-			int i = 0;
-
-			//Find the node at index - 1 (so we can change what it points to)
-			while(i < index - 1) {
-				currentNode = currentNode.getNext();
-				i++;
-			}
+		} else {
+			
+			//Need to insert at index which is not the end, so in front of the node at index
+			linkBefore(element, nodeAt(index));
 			
-			//Save the old next list
-			LinkedListNode<T> oldNext = currentNode.getNext();
-			//Create the new node to be added
-			LinkedListNode<T> newNode = new LinkedListNode<T>(element);
-			//Put the old next list as the next list of the new node
-			newNode.setNext(oldNext);
-			//Add the new node
-			currentNode.setNext(newNode);
-			length++;
-				
 		}
-
+		
 	}
 
 	/*
 	 * Insert the element given at the start of the list
 	 */
 	public void insert(T element) {
-
+		
 		LinkedListNode<T> oldHead = head;
 		head = new LinkedListNode<T>(element);
 		head.setNext(oldHead);
 		length++;
+		modCount++;
+		
+		if(oldHead != null) {
+			oldHead.setPrevious(head);
+		}
 		
 		//If there is no tail then set this to tail as this must be the only node
 		if(tail == null) {
@@ -79,25 +80,28 @@ public class MyLinkedList<T> {
 		}
 		
 	}
-	
+
 	/*
 	 * Insert the element given at the end of the list
 	 */
 	public void insertLast(T element) {
-
+		
 		if(head == null) {
 			
 			head = new LinkedListNode<T>(element);
 			tail = head;
 			length++;
+			modCount++;
 			
 		} else {
-				
+			
 			//Add the new element at the end
 			LinkedListNode<T> newNode = new LinkedListNode<T>(element);
+			newNode.setPrevious(tail);
 			tail.setNext(newNode);
 			tail = newNode;
 			length++;
+			modCount++;
 			
 		}
 		
@@ -114,7 +118,7 @@ public class MyLinkedList<T> {
 			System.out.print("empty\n");
 			
 		} else {
-		
+			
 			LinkedListNode<T> currentNode = head;
 			
 			//Loop through the list printing
@@ -129,37 +133,47 @@ public class MyLinkedList<T> {
 		}
 		
 	}
-	
+
 	/*
 	 * Represents the list as a string using the T object's toString method separated by commas
 	 */
 	public String toString() {
 		
+		return MyWritable.render(this::writeTo, length);
+		
+	}
+
+	/*
+	 * Writes the list to out in the same format as toString, one element at a time,
+	 * so a long list can be dumped without building the whole string first.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
 		if(head == null) {
 			
 			//Nothing in the list
-			return("empty");
+			out.append("empty");
 			
 		} else {
-		
-			LinkedListNode<T> currentNode = head;
-			String returnString = "";
-			
-			//Loop through the list printing
-			while(currentNode.hasNext()) {
-				returnString += currentNode.getElement().toString() + ", ";
-				currentNode = currentNode.getNext();
-			}
 			
-			//Print the last item in the list
-			returnString += currentNode.getElement().toString();
+			out.append(head.getElement().toString());
 			
-			return returnString;
+			for(LinkedListNode<T> currentNode = head.getNext(); currentNode != null; currentNode = currentNode.getNext()) {
+				out.append(", ").append(currentNode.getElement().toString());
+			}
 			
 		}
 		
 	}
 
+	/*
+	 * Returns the first node of the list (or null if it is empty) so other structures in this
+	 * package can walk the list in place without the O(n) cost of get(index).
+	 */
+	LinkedListNode<T> getHead() {
+		return head;
+	}
+
 	/*
 	 * Returns the number of elements in the list
 	 */
@@ -168,11 +182,11 @@ public class MyLinkedList<T> {
 	}
 
 	/*
-	 * Returns the element at the index given. 
+	 * Returns the element at the index given.
 	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
 	 */
 	public T get(int index) {
-
+		
 		if(head == null || index >= length || index < 0 ) {
 			
 			//Element does not exist
@@ -180,27 +194,18 @@ public class MyLinkedList<T> {
 			
 		} else {
 			
-			LinkedListNode<T> currentNode = head;
-			int i = 0;
-			
-			//Find the node at index, or the last node
-			while(i < index) {
-				currentNode = currentNode.getNext();
-				i++;
-			}
-			
-			return currentNode.getElement();
+			return nodeAt(index).getElement();
 			
 		}
-				
+		
 	}
 
 	/*
-	 * Removes the element at the index given and returns it. 
+	 * Removes the element at the index given and returns it.
 	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
 	 */
 	public T delete(int index) {
-
+		
 		if(head == null || index >= length || index < 0 ) {
 			
 			//Element does not exist
@@ -221,25 +226,15 @@ public class MyLinkedList<T> {
 			} else {
 				
 				//Delete an element in the middle of the list
-				//Get the node before the delete node
-				LinkedListNode<T> currentNode = head;
-				int i = 0;
+				LinkedListNode<T> deleteNode = nodeAt(index);
+				unlink(deleteNode);
 				
-				while(i < index - 1) {
-					currentNode = currentNode.getNext();
-					i++;
-				}
-				
-				T returnElement = currentNode.getNext().getElement();
-				currentNode.setNext(currentNode.getNext().getNext());
-				length--;
-				
-				return returnElement;
+				return deleteNode.getElement();
 				
 			}
-
+			
 		}
-
+		
 		
 	}
 
@@ -258,14 +253,8 @@ public class MyLinkedList<T> {
 			
 			//Remove the head
 			T returnElement = head.getElement();
-			head = head.getNext();
-			length--;
+			unlink(head);
 			
-			//Just incase that was the only element
-			if(head == null) {
-				tail = null;
-			}
-
 			return returnElement;
 			
 		}
@@ -277,41 +266,253 @@ public class MyLinkedList<T> {
 	 * If the list is empty, throws ArrayIndexOutOfBoundsException
 	 */
 	public T deleteLast() {
-
+		
 		if(head == null) {
 			
 			//Element does not exist
 			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
 			
-		} else if (!head.hasNext()) {
+		} else {
+			
+			//The tail knows the node before it, so no need to walk the list
+			T returnElement = tail.getElement();
+			unlink(tail);
 			
-			//The last is also the head
-			T returnElement = head.getElement();
-			head = null;
-			tail = null;
-			length = 0;
 			return returnElement;
 			
+		}
+		
+	}
+
+	/*
+	 * Returns an iterator over the elements from first to last.
+	 */
+	public Iterator<T> iterator() {
+		
+		return new ListItr(0);
+		
+	}
+
+	/*
+	 * Returns a list iterator starting in front of the element at index (or at the end if index == length).
+	 * The iterator can move both ways, and remove, set and add act on the list in place in O(1).
+	 * It is fail-fast: if the list is changed other than through the iterator it throws
+	 * ConcurrentModificationException.
+	 */
+	public ListIterator<T> listIterator(int index) {
+		
+		if(index < 0 || index > length) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return new ListItr(index);
+		
+	}
+
+	/*
+	 * Returns the node at index, walking from the head or the tail depending on which is closer.
+	 * The index must be valid.
+	 */
+	private LinkedListNode<T> nodeAt(int index) {
+		
+		LinkedListNode<T> currentNode;
+		
+		if(index < length / 2) {
+			
+			currentNode = head;
+			for(int i = 0; i < index; i++) {
+				currentNode = currentNode.getNext();
+			}
+			
 		} else {
 			
-			//Get the second last node
-			LinkedListNode<T> currentNode = head;
-			int i = 0;
+			currentNode = tail;
+			for(int i = length - 1; i > index; i--) {
+				currentNode = currentNode.getPrevious();
+			}
 			
-			while(i < length - 2) {
-				currentNode = currentNode.getNext();
-				i++;
+		}
+		
+		return currentNode;
+		
+	}
+
+	/*
+	 * Inserts a new node holding element in front of the given node, which must be in the list.
+	 */
+	private void linkBefore(T element, LinkedListNode<T> node) {
+		
+		LinkedListNode<T> newNode = new LinkedListNode<T>(element);
+		LinkedListNode<T> previous = node.getPrevious();
+		
+		newNode.setPrevious(previous);
+		newNode.setNext(node);
+		node.setPrevious(newNode);
+		
+		if(previous == null) {
+			head = newNode;
+		} else {
+			previous.setNext(newNode);
+		}
+		
+		length++;
+		modCount++;
+		
+	}
+
+	/*
+	 * Takes the given node out of the list by joining up its neighbours.
+	 */
+	private void unlink(LinkedListNode<T> node) {
+		
+		LinkedListNode<T> previous = node.getPrevious();
+		LinkedListNode<T> next = node.getNext();
+		
+		if(previous == null) {
+			head = next;
+		} else {
+			previous.setNext(next);
+		}
+		
+		if(next == null) {
+			tail = previous;
+		} else {
+			next.setPrevious(previous);
+		}
+		
+		node.setNext(null);
+		node.setPrevious(null);
+		length--;
+		modCount++;
+		
+	}
+
+	private class ListItr implements ListIterator<T> {
+		
+		//The node next() will return, null when at the end
+		private LinkedListNode<T> nextNode;
+		private int nextIndex;
+		
+		//The node returned by the last call to next() or previous(), for remove and set
+		private LinkedListNode<T> lastReturned;
+		private int expectedModCount;
+		
+		ListItr(int index) {
+			
+			nextNode = (index == length) ? null : nodeAt(index);
+			nextIndex = index;
+			lastReturned = null;
+			expectedModCount = modCount;
+			
+		}
+		
+		public boolean hasNext() {
+			return nextIndex < length;
+		}
+		
+		public T next() {
+			
+			checkForChanges();
+			if(!hasNext()) {
+				throw new NoSuchElementException();
 			}
 			
-			T returnElement = currentNode.getNext().getElement();
-			currentNode.setNext(null);
-			length--;
-			tail = currentNode;
+			lastReturned = nextNode;
+			nextNode = nextNode.getNext();
+			nextIndex++;
 			
-			return returnElement;
+			return lastReturned.getElement();
+			
+		}
+		
+		public boolean hasPrevious() {
+			return nextIndex > 0;
+		}
+		
+		public T previous() {
+			
+			checkForChanges();
+			if(!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			
+			nextNode = (nextNode == null) ? tail : nextNode.getPrevious();
+			lastReturned = nextNode;
+			nextIndex--;
+			
+			return lastReturned.getElement();
+			
+		}
+		
+		public int nextIndex() {
+			return nextIndex;
+		}
+		
+		public int previousIndex() {
+			return nextIndex - 1;
+		}
+		
+		public void remove() {
+			
+			checkForChanges();
+			if(lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			
+			if(lastReturned == nextNode) {
+				
+				//Removing the element previous() just returned, the cursor moves on past it
+				nextNode = lastReturned.getNext();
+				
+			} else {
+				
+				//Removing the element next() just returned, it was before the cursor
+				nextIndex--;
+				
+			}
+			
+			unlink(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+			
+		}
+		
+		public void set(T element) {
+			
+			checkForChanges();
+			if(lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			
+			lastReturned.setElement(element);
+			
+		}
+		
+		public void add(T element) {
+			
+			checkForChanges();
+			
+			if(nextNode == null) {
+				insertLast(element);
+			} else {
+				linkBefore(element, nextNode);
+			}
+			
+			nextIndex++;
+			lastReturned = null;
+			expectedModCount = modCount;
+			
+		}
+		
+		private void checkForChanges() {
+			
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
 			
 		}
 		
 	}
 
+
 }
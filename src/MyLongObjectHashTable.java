@@ -0,0 +1,290 @@
+/**
+ * A hash table from long keys to object values. Like MyIntIntHashTable the keys are kept in
+ * a primitive array so they are never boxed, and no objects are created by add, get, contains
+ * or remove once the table has grown to its working size.
+ * Key 0 is used to mark an empty slot, so the pair for key 0 (if any) is kept off to the side.
+ * @author Andrew
+ *
+ * @param <V>
+ */
+
+public class MyLongObjectHashTable<V> {
+	
+	private static final long EMPTY = 0L;
+	private static final float LOAD_FACTOR = 0.75f;
+	
+	private long[] keys;
+	private V[] values;
+	private int size;
+	private int mask;
+	private int threshold;
+	
+	private boolean hasZeroKey;
+	private V zeroValue;
+	
+	public MyLongObjectHashTable() {
+		
+		this(16);
+		
+	}
+
+	/*
+	 * Creates a new table big enough to hold expectedElements without resizing.
+	 */
+	public MyLongObjectHashTable(int expectedElements) {
+		
+		if(expectedElements < 0) {
+			throw new IllegalArgumentException("Expected elements must not be negative");
+		}
+		
+		int capacity = 2;
+		while(capacity < (1 << 30) && capacity * LOAD_FACTOR < expectedElements) {
+			capacity *= 2;
+		}
+		
+		allocate(capacity);
+		size = 0;
+		
+	}
+
+	/*
+	 * Adds the given key value pair to the hash table, replacing the value if the key
+	 * is already present.
+	 */
+	public void add(long key, V value) {
+		
+		if(key == EMPTY) {
+			
+			if(!hasZeroKey) {
+				hasZeroKey = true;
+				size++;
+			}
+			zeroValue = value;
+			return;
+			
+		}
+		
+		int index = slotFor(key);
+		
+		if(keys[index] == key) {
+			
+			values[index] = value;
+			
+		} else {
+			
+			keys[index] = key;
+			values[index] = value;
+			size++;
+			
+			if(size > threshold) {
+				resize(keys.length * 2);
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to in the hash table, or null if there is none.
+	 */
+	public V get(long key) {
+		
+		if(key == EMPTY) {
+			return zeroValue;
+		}
+		
+		int index = slotFor(key);
+		
+		return keys[index] == key ? values[index] : null;
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(long key) {
+		
+		if(key == EMPTY) {
+			return hasZeroKey;
+		}
+		
+		return keys[slotFor(key)] == key;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(long key) {
+		
+		if(key == EMPTY) {
+			
+			if(hasZeroKey) {
+				hasZeroKey = false;
+				zeroValue = null;
+				size--;
+			}
+			return;
+			
+		}
+		
+		int hole = slotFor(key);
+		
+		if(keys[hole] != key) {
+			return;
+		}
+		
+		//Backward shift deletion, see MyOpenHashTable.remove
+		int next = (hole + 1) & mask;
+		
+		while(keys[next] != EMPTY) {
+			
+			int home = mix(keys[next]) & mask;
+			
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			
+			next = (next + 1) & mask;
+			
+		}
+		
+		keys[hole] = EMPTY;
+		values[hole] = null;
+		size--;
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Returns an array of all the keys in the hash table
+	 */
+	public long[] getKeys() {
+		
+		long[] result = new long[size];
+		int j = 0;
+		
+		if(hasZeroKey) {
+			result[j++] = EMPTY;
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				result[j++] = keys[i];
+			}
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Returns a linked list of all the values in the hash table
+	 */
+	public MyLinkedList<V> getValues() {
+		
+		MyLinkedList<V> result = new MyLinkedList<V>();
+		
+		if(hasZeroKey) {
+			result.insert(zeroValue);
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				result.insert(values[i]);
+			}
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Prints a list of all the key value pairs in the table
+	 */
+	public void printTable() {
+		
+		if(hasZeroKey) {
+			System.out.print("[0:" + zeroValue + "] ");
+		}
+		
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != EMPTY) {
+				System.out.print("[" + keys[i] + ":" + values[i] + "] ");
+			}
+		}
+		
+		System.out.println();
+		
+	}
+
+	/*
+	 * Returns the slot holding key, or the empty slot where it would be inserted.
+	 */
+	private int slotFor(long key) {
+		
+		int index = mix(key) & mask;
+		
+		while(keys[index] != EMPTY && keys[index] != key) {
+			index = (index + 1) & mask;
+		}
+		
+		return index;
+		
+	}
+
+	private void resize(int newCapacity) {
+		
+		long[] oldKeys = keys;
+		V[] oldValues = values;
+		
+		allocate(newCapacity);
+		
+		for(int i = 0; i < oldKeys.length; i++) {
+			
+			if(oldKeys[i] != EMPTY) {
+				int index = slotFor(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+			
+		}
+		
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		
+		keys = new long[capacity];
+		values = (V[]) new Object[capacity];
+		mask = capacity - 1;
+		threshold = Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+		
+	}
+
+	/*
+	 * The MurmurHash3 64 bit finalizer, folded down to an int.
+	 */
+	private static int mix(long key) {
+		
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h;
+		
+	}
+
+}
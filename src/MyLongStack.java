@@ -0,0 +1,96 @@
+import java.util.Arrays;
+
+/**
+ * A stack of long values. It works the same way as MyStack but keeps the values in a long
+ * array, so pushing and popping never box a value or create an object.
+ * @author Andrew
+ *
+ */
+
+public class MyLongStack {
+	
+	private long[] stack;
+	private int size;
+	
+	public MyLongStack() {
+		this(16);
+	}
+
+	/*
+	 * Creates a stack with room for initialCapacity values before it needs to grow.
+	 */
+	public MyLongStack(int initialCapacity) {
+		
+		stack = new long[Math.max(initialCapacity, 1)];
+		size = 0;
+		
+	}
+
+	/*
+	 * Add the value to the top of the stack.
+	 */
+	public void push(long value) {
+		
+		if(size == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		
+		stack[size++] = value;
+		
+	}
+
+	/*
+	 * Remove a value from the top of the stack.
+	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
+	 */
+	public long pop() {
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return stack[--size];
+		
+	}
+
+	/*
+	 * Returns the string implementation of the stack.
+	 */
+	public String toString() {
+		
+		if(size == 0) {
+			return "empty";
+		}
+		
+		//List from the top of the stack down, the buffer is sized for the longest possible values
+		//(Long.MIN_VALUE is 20 characters, plus 2 for the separator)
+		StringBuilder builder = new StringBuilder(size * 22);
+		builder.append(stack[size - 1]);
+		
+		for(int i = size - 2; i >= 0; i--) {
+			builder.append(", ").append(stack[i]);
+		}
+		
+		return builder.toString();
+		
+	}
+
+	/*
+	 * Returns true if there is a value on the stack
+	 */
+	public boolean hasNext() {
+		
+		return size > 0;
+		
+	}
+
+	/*
+	 * Returns the number of values on the stack
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+}
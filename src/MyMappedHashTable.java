@@ -0,0 +1,545 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A hash table whose buckets and pairs live in a memory mapped file instead of on the Java heap.
+ * Keys and values are turned into bytes with a MySerializer and written into the file with a fixed
+ * layout, so when the program restarts it can open the same file and carry on straight away
+ * without rebuilding anything. The operating system decides which parts of the file are in memory.
+ *
+ * File layout (all numbers big endian):
+ *   Header:   magic (int), version (int), bucket count (int), size (int), end of data (long), dead bytes (long)
+ *   Buckets:  one long per bucket, the offset of the first entry in its chain or 0 if empty
+ *   Entries:  next entry offset (long), hash (int), key length (int), value length (int), key, value
+ *
+ * Like MyHashTable each bucket is a linked list (here linked by file offsets). New entries are
+ * appended to the end of the data and linked in at the head of their chain. Replacing a value
+ * with one of the same length writes over it in place, otherwise the old entry is unlinked and
+ * its bytes are counted as dead. The hash is worked out from the key's bytes so it is the same in
+ * every run. The whole file is mapped at once, so it is limited to 2GB.
+ * Like MyHashTable the table doubles its buckets once it holds more pairs than buckets. Growing
+ * and reclaiming dead space are done by the same rebuild: every live entry is copied, packed
+ * together, into a new file with the new bucket array, which then replaces the old file with an
+ * atomic rename. A crash part way through leaves the old file as it was. The table is rebuilt
+ * (at its current size) when more than half of its data is dead, which is checked on every add.
+ * @author Andrew
+ *
+ * @param <K>
+ * @param <V>
+ */
+
+public class MyMappedHashTable<K, V> implements Closeable {
+	
+	private static final int MAGIC = 0x4D485431; //"MHT1"
+	private static final int VERSION = 1;
+	
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int BUCKETS_OFFSET = 8;
+	private static final int SIZE_OFFSET = 12;
+	private static final int DATA_END_OFFSET = 16;
+	private static final int DEAD_BYTES_OFFSET = 24;
+	private static final int HEADER_SIZE = 32;
+	
+	private static final int ENTRY_NEXT = 0;
+	private static final int ENTRY_HASH = 8;
+	private static final int ENTRY_KEY_LENGTH = 12;
+	private static final int ENTRY_VALUE_LENGTH = 16;
+	private static final int ENTRY_HEADER_SIZE = 20;
+	
+	//Dead space is only worth a rebuild once there is at least this much of it
+	private static final long MIN_DEAD_BYTES = 1 << 16;
+	
+	private final Path file;
+	private final MySerializer<K> keySerializer;
+	private final MySerializer<V> valueSerializer;
+	private FileChannel channel;
+	private int bucketCount;
+	private MappedByteBuffer buffer;
+	
+	/*
+	 * Opens the table stored in file, or creates it with the given number of buckets if the file
+	 * doesn't exist yet. When an existing file is opened its own bucket count is used.
+	 */
+	public MyMappedHashTable(Path file, int bucketCount, MySerializer<K> keySerializer, MySerializer<V> valueSerializer) throws IOException {
+		
+		if(bucketCount <= 0) {
+			throw new IllegalArgumentException("Hash table must have at least one bucket");
+		}
+		
+		this.file = file;
+		this.keySerializer = keySerializer;
+		this.valueSerializer = valueSerializer;
+		
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try {
+			
+			if(channel.size() == 0) {
+				
+				//A brand new file, write the header and an empty bucket array
+				long dataStart = HEADER_SIZE + (long) bucketCount * 8;
+				map(Math.max(dataStart * 2, 4096));
+				
+				buffer.putInt(MAGIC_OFFSET, MAGIC);
+				buffer.putInt(VERSION_OFFSET, VERSION);
+				buffer.putInt(BUCKETS_OFFSET, bucketCount);
+				buffer.putInt(SIZE_OFFSET, 0);
+				buffer.putLong(DATA_END_OFFSET, dataStart);
+				buffer.putLong(DEAD_BYTES_OFFSET, 0);
+				this.bucketCount = bucketCount;
+				
+			} else {
+				
+				if(channel.size() < HEADER_SIZE) {
+					throw new IOException("Not a mapped hash table file: " + file);
+				}
+				
+				map(channel.size());
+				
+				if(buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != VERSION) {
+					throw new IOException("Not a mapped hash table file: " + file);
+				}
+				
+				this.bucketCount = buffer.getInt(BUCKETS_OFFSET);
+				
+			}
+			
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		
+	}
+
+	/*
+	 * Adds the given key value pair to the hash table
+	 */
+	public void add(K key, V value) throws IOException {
+		
+		byte[] keyBytes = keySerializer.toBytes(key);
+		byte[] valueBytes = valueSerializer.toBytes(value);
+		int hash = hash(keyBytes);
+		long bucket = bucketOffset(hash);
+		
+		long existing = find(bucket, keyBytes, hash);
+		
+		if(existing != 0 && buffer.getInt((int) existing + ENTRY_VALUE_LENGTH) == valueBytes.length) {
+			
+			//Same length so just write the new value over the old one
+			int valueStart = (int) existing + ENTRY_HEADER_SIZE + keyBytes.length;
+			for(int i = 0; i < valueBytes.length; i++) {
+				buffer.put(valueStart + i, valueBytes[i]);
+			}
+			return;
+			
+		}
+		
+		if(existing != 0) {
+			unlink(bucket, existing);
+			setSize(size() - 1);
+		}
+		
+		//Rebuild first if the table is due to grow or is mostly dead space, so the new entry goes straight into the new file
+		int newBucketCount = (size() + 1 > bucketCount) ? bucketCount * 2 : bucketCount;
+		if(newBucketCount != bucketCount || deadBytes() > Math.max(MIN_DEAD_BYTES, liveBytes())) {
+			rebuild(newBucketCount);
+			bucket = bucketOffset(hash);
+		}
+		
+		//Append the new entry at the end of the data
+		long entry = buffer.getLong(DATA_END_OFFSET);
+		long entryEnd = entry + ENTRY_HEADER_SIZE + keyBytes.length + valueBytes.length;
+		ensureCapacity(entryEnd);
+		
+		int position = (int) entry;
+		buffer.putLong(position + ENTRY_NEXT, buffer.getLong((int) bucket));
+		buffer.putInt(position + ENTRY_HASH, hash);
+		buffer.putInt(position + ENTRY_KEY_LENGTH, keyBytes.length);
+		buffer.putInt(position + ENTRY_VALUE_LENGTH, valueBytes.length);
+		for(int i = 0; i < keyBytes.length; i++) {
+			buffer.put(position + ENTRY_HEADER_SIZE + i, keyBytes[i]);
+		}
+		for(int i = 0; i < valueBytes.length; i++) {
+			buffer.put(position + ENTRY_HEADER_SIZE + keyBytes.length + i, valueBytes[i]);
+		}
+		
+		//Only link it into the chain once it is completely written
+		buffer.putLong(DATA_END_OFFSET, entryEnd);
+		buffer.putLong((int) bucket, entry);
+		setSize(size() + 1);
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to in the hash table.
+	 */
+	public V get(K key) {
+		
+		byte[] keyBytes = keySerializer.toBytes(key);
+		int hash = hash(keyBytes);
+		long entry = find(bucketOffset(hash), keyBytes, hash);
+		
+		if(entry == 0) {
+			return null;
+		}
+		
+		return valueSerializer.fromBytes(readValue((int) entry));
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(K key) {
+		
+		byte[] keyBytes = keySerializer.toBytes(key);
+		int hash = hash(keyBytes);
+		
+		return find(bucketOffset(hash), keyBytes, hash) != 0;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(K key) {
+		
+		byte[] keyBytes = keySerializer.toBytes(key);
+		int hash = hash(keyBytes);
+		long bucket = bucketOffset(hash);
+		long entry = find(bucket, keyBytes, hash);
+		
+		if(entry != 0) {
+			unlink(bucket, entry);
+			setSize(size() - 1);
+		}
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		return buffer.getInt(SIZE_OFFSET);
+		
+	}
+
+	/*
+	 * Returns how many buckets the table has at the moment.
+	 */
+	int getBucketCount() {
+		
+		return bucketCount;
+		
+	}
+
+	/*
+	 * Returns a linked list of all the keys in the hash table
+	 */
+	public MyLinkedList<K> getKeys() {
+		
+		MyLinkedList<K> keys = new MyLinkedList<K>();
+		
+		for(int b = 0; b < bucketCount; b++) {
+			
+			long entry = buffer.getLong(HEADER_SIZE + b * 8);
+			
+			while(entry != 0) {
+				keys.insert(keySerializer.fromBytes(readKey((int) entry)));
+				entry = buffer.getLong((int) entry + ENTRY_NEXT);
+			}
+			
+		}
+		
+		return keys;
+		
+	}
+
+	/*
+	 * Returns a linked list of all the values in the hash table
+	 */
+	public MyLinkedList<V> getValues() {
+		
+		MyLinkedList<V> values = new MyLinkedList<V>();
+		
+		for(int b = 0; b < bucketCount; b++) {
+			
+			long entry = buffer.getLong(HEADER_SIZE + b * 8);
+			
+			while(entry != 0) {
+				values.insert(valueSerializer.fromBytes(readValue((int) entry)));
+				entry = buffer.getLong((int) entry + ENTRY_NEXT);
+			}
+			
+		}
+		
+		return values;
+		
+	}
+
+	/*
+	 * Prints a list of all the key value pairs in the table
+	 */
+	public void printTable() {
+		
+		for(int b = 0; b < bucketCount; b++) {
+			
+			long entry = buffer.getLong(HEADER_SIZE + b * 8);
+			
+			while(entry != 0) {
+				K key = keySerializer.fromBytes(readKey((int) entry));
+				V value = valueSerializer.fromBytes(readValue((int) entry));
+				System.out.print("[" + key.toString() + ":" + value.toString() + "] ");
+				entry = buffer.getLong((int) entry + ENTRY_NEXT);
+			}
+			
+		}
+		
+		System.out.println();
+		
+	}
+
+	/*
+	 * Writes any changes still in memory out to the file.
+	 */
+	public void flush() {
+		
+		buffer.force();
+		
+	}
+
+	/*
+	 * Flushes the table and closes the file. The table can't be used afterwards.
+	 */
+	public void close() throws IOException {
+		
+		if(channel.isOpen()) {
+			flush();
+			channel.close();
+		}
+		
+	}
+
+	/*
+	 * Returns the offset of the entry holding the key in the chain starting at bucket, or 0.
+	 */
+	private long find(long bucket, byte[] keyBytes, int hash) {
+		
+		long entry = buffer.getLong((int) bucket);
+		
+		while(entry != 0) {
+			
+			int position = (int) entry;
+			
+			if(buffer.getInt(position + ENTRY_HASH) == hash && Arrays.equals(readKey(position), keyBytes)) {
+				return entry;
+			}
+			
+			entry = buffer.getLong(position + ENTRY_NEXT);
+			
+		}
+		
+		return 0;
+		
+	}
+
+	/*
+	 * Takes the entry out of the chain starting at bucket.
+	 */
+	private void unlink(long bucket, long entry) {
+		
+		buffer.putLong(DEAD_BYTES_OFFSET, deadBytes() + entryLength((int) entry));
+		
+		long next = buffer.getLong((int) entry + ENTRY_NEXT);
+		long previous = bucket;
+		
+		//Find the pointer which points at entry and point it past it
+		long current = buffer.getLong((int) bucket);
+		while(current != entry) {
+			previous = current + ENTRY_NEXT;
+			current = buffer.getLong((int) current + ENTRY_NEXT);
+		}
+		
+		buffer.putLong((int) previous, next);
+		
+	}
+
+	private byte[] readKey(int position) {
+		
+		byte[] key = new byte[buffer.getInt(position + ENTRY_KEY_LENGTH)];
+		for(int i = 0; i < key.length; i++) {
+			key[i] = buffer.get(position + ENTRY_HEADER_SIZE + i);
+		}
+		
+		return key;
+		
+	}
+
+	private byte[] readValue(int position) {
+		
+		int keyLength = buffer.getInt(position + ENTRY_KEY_LENGTH);
+		byte[] value = new byte[buffer.getInt(position + ENTRY_VALUE_LENGTH)];
+		for(int i = 0; i < value.length; i++) {
+			value[i] = buffer.get(position + ENTRY_HEADER_SIZE + keyLength + i);
+		}
+		
+		return value;
+		
+	}
+
+	/*
+	 * Copies every live entry into a new file with newBucketCount buckets, leaving out the dead
+	 * space, then swaps it in for the old file. Entries are packed one after another in bucket order.
+	 */
+	private void rebuild(int newBucketCount) throws IOException {
+		
+		long dataStart = HEADER_SIZE + (long) newBucketCount * 8;
+		long dataEnd = dataStart + liveBytes();
+		
+		if(dataEnd > Integer.MAX_VALUE) {
+			throw new IOException("Mapped hash table is full");
+		}
+		
+		Path rebuilt = file.resolveSibling(file.getFileName() + ".rebuild");
+		
+		try(FileChannel target = FileChannel.open(rebuilt, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			
+			//Leave room to grow, as a new file does
+			MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(Math.max(dataEnd * 2, 4096), Integer.MAX_VALUE));
+			out.putInt(MAGIC_OFFSET, MAGIC);
+			out.putInt(VERSION_OFFSET, VERSION);
+			out.putInt(BUCKETS_OFFSET, newBucketCount);
+			out.putInt(SIZE_OFFSET, size());
+			out.putLong(DEAD_BYTES_OFFSET, 0);
+			
+			int end = (int) dataStart;
+			
+			for(int b = 0; b < bucketCount; b++) {
+				
+				long entry = buffer.getLong(HEADER_SIZE + b * 8);
+				
+				while(entry != 0) {
+					
+					int position = (int) entry;
+					int length = entryLength(position);
+					
+					ByteBuffer source = buffer.duplicate();
+					source.limit(position + length).position(position);
+					out.position(end);
+					out.put(source);
+					
+					//Link it in at the head of its chain in the new buckets
+					int newBucket = HEADER_SIZE + ((buffer.getInt(position + ENTRY_HASH) & 0x7fffffff) % newBucketCount) * 8;
+					out.putLong(end + ENTRY_NEXT, out.getLong(newBucket));
+					out.putLong(newBucket, end);
+					
+					end += length;
+					entry = buffer.getLong(position + ENTRY_NEXT);
+					
+				}
+				
+			}
+			
+			out.putLong(DATA_END_OFFSET, end);
+			out.force();
+			
+		}
+		
+		//The new file is complete, so it can take the old one's place
+		channel.close();
+		Files.move(rebuilt, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		map(channel.size());
+		bucketCount = newBucketCount;
+		
+	}
+
+	private int entryLength(int position) {
+		
+		return ENTRY_HEADER_SIZE + buffer.getInt(position + ENTRY_KEY_LENGTH) + buffer.getInt(position + ENTRY_VALUE_LENGTH);
+		
+	}
+
+	private long deadBytes() {
+		
+		return buffer.getLong(DEAD_BYTES_OFFSET);
+		
+	}
+
+	/*
+	 * The number of bytes taken up by entries which are still linked into a chain.
+	 */
+	private long liveBytes() {
+		
+		return buffer.getLong(DATA_END_OFFSET) - HEADER_SIZE - (long) bucketCount * 8 - deadBytes();
+		
+	}
+
+	private void setSize(int size) {
+		
+		buffer.putInt(SIZE_OFFSET, size);
+		
+	}
+
+	private long bucketOffset(int hash) {
+		
+		return HEADER_SIZE + (long) ((hash & 0x7fffffff) % bucketCount) * 8;
+		
+	}
+
+	/*
+	 * Grows the file (doubling it) and maps it again if end is past the mapped region.
+	 */
+	private void ensureCapacity(long end) throws IOException {
+		
+		if(end <= buffer.capacity()) {
+			return;
+		}
+		
+		if(end > Integer.MAX_VALUE) {
+			throw new IOException("Mapped hash table is full");
+		}
+		
+		long newSize = buffer.capacity();
+		while(newSize < end) {
+			newSize *= 2;
+		}
+		
+		buffer.force();
+		map(Math.min(newSize, Integer.MAX_VALUE));
+		
+	}
+
+	private void map(long length) throws IOException {
+		
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+		
+	}
+
+	/*
+	 * FNV-1a over the key's bytes, so the hash doesn't depend on hashCode staying the same between runs.
+	 */
+	private static int hash(byte[] bytes) {
+		
+		int h = 0x811C9DC5;
+		
+		for(byte b: bytes) {
+			h ^= b & 0xff;
+			h *= 0x01000193;
+		}
+		
+		return h;
+		
+	}
+
+}
@@ -0,0 +1,185 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * A queue which any number of producer threads can add to and one consumer thread takes from,
+ * without any locks. It is Dmitry Vyukov's bounded ring buffer: every slot has a sequence number
+ * which says whose turn it is. A producer claims a slot by compare-and-setting the tail index, writes
+ * its element and then moves the slot's sequence on to tell the consumer it is ready. The consumer
+ * is the only one moving the head, so it never has to compare-and-set.
+ * Producers only contend with each other on the tail, and never with the consumer. The head and tail
+ * indexes are padded onto separate cache lines to avoid false sharing.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+public class MyMpscQueue<T> {
+	
+	private final T[] buffer;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	
+	//Written by the consumer only
+	private final PaddedAtomicLong head = new PaddedAtomicLong(0);
+	
+	//Claimed by producers with compare-and-set
+	private final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+	
+	/*
+	 * Creates a queue with room for at least capacity elements (rounded up to a power of two).
+	 */
+	@SuppressWarnings("unchecked")
+	public MyMpscQueue(int capacity) {
+		
+		if(capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		
+		int length = Integer.highestOneBit(capacity);
+		if(length < capacity) {
+			length *= 2;
+		}
+		
+		buffer = (T[]) new Object[length];
+		mask = length - 1;
+		
+		//Slot i is free for the producer who claims position i
+		sequences = new AtomicLongArray(length);
+		for(int i = 0; i < length; i++) {
+			sequences.set(i, i);
+		}
+		
+	}
+
+	/*
+	 * Adds the element to the end of the queue. Returns false if the queue is full.
+	 * Safe to call from any number of threads.
+	 */
+	public boolean offer(T element) {
+		
+		if(element == null) {
+			throw new NullPointerException("Queue elements must not be null");
+		}
+		
+		long position;
+		
+		while(true) {
+			
+			position = tail.get();
+			long sequence = sequences.get((int) position & mask);
+			long difference = sequence - position;
+			
+			if(difference == 0) {
+				
+				//The slot is free, try to claim it
+				if(tail.compareAndSet(position, position + 1)) {
+					break;
+				}
+				
+			} else if(difference < 0) {
+				
+				//The consumer hasn't freed this slot from the last lap yet
+				return false;
+				
+			}
+			
+			//Otherwise another producer got there first, try again with the new tail
+			
+		}
+		
+		int index = (int) position & mask;
+		buffer[index] = element;
+		sequences.lazySet(index, position + 1);
+		return true;
+		
+	}
+
+	/*
+	 * Removes and returns the first element, or returns null if the queue is empty (or the
+	 * producer of the next element is still part way through writing it).
+	 * Only call from the consumer thread.
+	 */
+	public T poll() {
+		
+		long position = head.get();
+		int index = (int) position & mask;
+		
+		if(sequences.get(index) != position + 1) {
+			return null;
+		}
+		
+		T element = buffer[index];
+		buffer[index] = null;
+		
+		//Hand the slot to whichever producer gets this position on the next lap
+		sequences.lazySet(index, position + buffer.length);
+		head.lazySet(position + 1);
+		
+		return element;
+		
+	}
+
+	/*
+	 * Removes up to limit elements and passes each to the action, returns how many were removed.
+	 * Stops early at the first slot which isn't ready yet. If the action throws, the element it
+	 * was given has already been removed and the queue carries on from the one after it.
+	 * Only call from the consumer thread.
+	 */
+	public int drainTo(Consumer<? super T> action, int limit) {
+		
+		long position = head.get();
+		int count = 0;
+		
+		while(count < limit) {
+			
+			int index = (int) position & mask;
+			
+			if(sequences.get(index) != position + 1) {
+				break;
+			}
+			
+			T element = buffer[index];
+			buffer[index] = null;
+			sequences.lazySet(index, position + buffer.length);
+			position++;
+			count++;
+			
+			//The slot is already handed back, so head has to move past it before the action can throw
+			head.lazySet(position);
+			action.accept(element);
+			
+		}
+		
+		return count;
+		
+	}
+
+	/*
+	 * Returns true if the queue contains an element.
+	 */
+	public boolean hasNext() {
+		
+		return size() > 0;
+		
+	}
+
+	/*
+	 * Returns the number of elements in the queue. Only a snapshot while producers are busy.
+	 */
+	public int size() {
+		
+		long currentHead = head.get();
+		return (int) Math.max(0, tail.get() - currentHead);
+		
+	}
+
+	/*
+	 * Returns the number of elements the queue can hold.
+	 */
+	public int capacity() {
+		
+		return buffer.length;
+		
+	}
+
+}
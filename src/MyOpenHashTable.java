@@ -0,0 +1,309 @@
+/**
+ * An open addressing hash table stores its key value pairs directly in two flat arrays
+ * instead of keeping a linked list at every index like MyHashTable does. When two keys hash
+ * to the same index the second one is placed in the next free slot along (linear probing).
+ * This means there are no extra node objects per pair and a look-up usually only touches one
+ * or two neighbouring slots, which is much friendlier to the cache.
+ * Deletion uses backward shifting instead of tombstones, so the table never fills up with
+ * dead slots. When the number of pairs passes capacity * loadFactor the arrays are doubled
+ * and every pair is re-inserted, so add, get, contains and remove are amortized O(1).
+ * @author Andrew
+ *
+ * @param <K>
+ * @param <V>
+ */
+
+public class MyOpenHashTable<K, V> {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+	
+	private K[] keys;
+	private V[] values;
+	private int size;
+	private int mask;
+	private int threshold;
+	private final float loadFactor;
+	
+	public MyOpenHashTable() {
+		
+		this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+		
+	}
+
+	/*
+	 * Creates a new table big enough to hold expectedElements without resizing.
+	 */
+	public MyOpenHashTable(int expectedElements) {
+		
+		this(expectedElements, DEFAULT_LOAD_FACTOR);
+		
+	}
+
+	/*
+	 * Creates a new table big enough to hold expectedElements without resizing, which
+	 * will grow once the proportion of used slots passes loadFactor.
+	 * The load factor must be greater than 0 and less than 1.
+	 */
+	public MyOpenHashTable(int expectedElements, float loadFactor) {
+		
+		if(!(loadFactor > 0 && loadFactor < 1)) {
+			throw new IllegalArgumentException("Load factor must be between 0 and 1");
+		}
+		
+		if(expectedElements < 0) {
+			throw new IllegalArgumentException("Expected elements must not be negative");
+		}
+		
+		this.loadFactor = loadFactor;
+		allocate(capacityFor(expectedElements, loadFactor));
+		size = 0;
+		
+	}
+
+	/*
+	 * Adds the given key value pair to the hash table, replacing the value if the key
+	 * is already present.
+	 */
+	public void add(K key, V value) {
+		
+		int index = indexOf(key);
+		
+		//Walk along from the home slot until we find the key or a free slot
+		while(keys[index] != null) {
+			
+			if(keys[index].equals(key)) {
+				values[index] = value;
+				return;
+			}
+			
+			index = (index + 1) & mask;
+			
+		}
+		
+		keys[index] = key;
+		values[index] = value;
+		size++;
+		
+		if(size > threshold) {
+			resize(keys.length * 2);
+		}
+		
+	}
+
+	/*
+	 * Returns the value which the given key maps to in the hash table.
+	 */
+	public V get(K key) {
+		
+		int index = find(key);
+		
+		if(index < 0) {
+			return null;
+		}
+		
+		return values[index];
+		
+	}
+
+	/*
+	 * Returns true if the given key maps to a value in the hash table
+	 */
+	public boolean contains(K key) {
+		
+		return find(key) >= 0;
+		
+	}
+
+	/*
+	 * Removes the given key if it maps to a value in the hash table
+	 */
+	public void remove(K key) {
+		
+		int index = find(key);
+		
+		if(index < 0) {
+			return;
+		}
+		
+		/* Backward shift deletion:
+		 * 1. Empty the slot of the removed key
+		 * 2. Look at each following slot until we hit an empty one
+		 * 3. If the key in that slot could live in the hole (its home slot is not between
+		 *    the hole and itself) then move it into the hole, which becomes the new hole.
+		 */
+		int hole = index;
+		int next = (hole + 1) & mask;
+		
+		while(keys[next] != null) {
+			
+			int home = indexOf(keys[next]);
+			
+			//Distance from the home slot to next compared with the distance from the hole to next
+			if(((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			
+			next = (next + 1) & mask;
+			
+		}
+		
+		keys[hole] = null;
+		values[hole] = null;
+		size--;
+		
+	}
+
+	/*
+	 * Returns the number of key value pairs in the table
+	 */
+	public int size() {
+		
+		return size;
+		
+	}
+
+	/*
+	 * Prints a list of all the key value pairs in the table
+	 */
+	public void printTable() {
+		
+		for(int i = 0; i < keys.length; i++) {
+			
+			if(keys[i] != null) {
+				System.out.print("[" + keys[i].toString() + ":" + values[i].toString() + "] ");
+			}
+			
+		}
+		
+		System.out.println();
+		
+	}
+
+	/*
+	 * Returns a linked list of all the keys in the hash table
+	 */
+	public MyLinkedList<K> getKeys() {
+		
+		MyLinkedList<K> result = new MyLinkedList<K>();
+		
+		for(int i = 0; i < keys.length; i++) {
+			
+			if(keys[i] != null) {
+				result.insert(keys[i]);
+			}
+			
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Returns a linked list of all the values in the hash table
+	 */
+	public MyLinkedList<V> getValues() {
+		
+		MyLinkedList<V> result = new MyLinkedList<V>();
+		
+		for(int i = 0; i < keys.length; i++) {
+			
+			if(keys[i] != null) {
+				result.insert(values[i]);
+			}
+			
+		}
+		
+		return result;
+		
+	}
+
+	/*
+	 * Returns the slot holding the given key, or -1 if the key is not in the table.
+	 */
+	private int find(K key) {
+		
+		int index = indexOf(key);
+		
+		while(keys[index] != null) {
+			
+			if(keys[index].equals(key)) {
+				return index;
+			}
+			
+			index = (index + 1) & mask;
+			
+		}
+		
+		return -1;
+		
+	}
+
+	/*
+	 * Returns the home slot of the key. The hash code is mixed first so that keys whose
+	 * hash codes only differ in the high bits still spread across the table.
+	 */
+	private int indexOf(K key) {
+		
+		int h = key.hashCode() * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+		
+	}
+
+	/*
+	 * Moves every pair into new arrays of the given capacity.
+	 */
+	private void resize(int newCapacity) {
+		
+		K[] oldKeys = keys;
+		V[] oldValues = values;
+		
+		allocate(newCapacity);
+		
+		for(int i = 0; i < oldKeys.length; i++) {
+			
+			if(oldKeys[i] != null) {
+				
+				int index = indexOf(oldKeys[i]);
+				
+				while(keys[index] != null) {
+					index = (index + 1) & mask;
+				}
+				
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+				
+			}
+			
+		}
+		
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		
+		keys = (K[]) new Object[capacity];
+		values = (V[]) new Object[capacity];
+		mask = capacity - 1;
+		threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+		
+	}
+
+	/*
+	 * Returns the smallest power of two capacity that holds expectedElements under the load factor.
+	 */
+	private static int capacityFor(int expectedElements, float loadFactor) {
+		
+		int capacity = 2;
+		
+		while(capacity < (1 << 30) && capacity * loadFactor < expectedElements) {
+			capacity *= 2;
+		}
+		
+		return capacity;
+		
+	}
+
+}
@@ -1,44 +1,139 @@
+import java.io.IOException;
+
 /**
  * A queue is a simple linear data structure which follows the first in first out protocol.
- * The time complexity for enqueue and dequeue are both O(1) with this implementation.
+ * This implementation is a ring buffer: the elements sit in an array and head and tail indexes
+ * chase each other around it, wrapping back to the start when they reach the end. The array's
+ * length is always a power of two so wrapping is just a bit mask. Enqueue and dequeue are both O(1),
+ * and unlike a linked list no object is created per element.
+ * By default the array doubles when it fills up. A queue created with a fixed capacity never grows
+ * instead, so producers can see when it is full and back off (offer returns false).
  * @author Andrew
  *
  * @param <T>
  */
 public class MyQueue<T> {
 	
-	private MyLinkedList<T> queue;
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private T[] queue;
+	private int mask;
+	private int head;
+	private int size;
+	private final boolean bounded;
+	private final int capacity;
 	
 	public MyQueue() {
 		
-		queue = new MyLinkedList<T>();
+		queue = newArray(DEFAULT_CAPACITY);
+		mask = DEFAULT_CAPACITY - 1;
+		head = 0;
+		size = 0;
+		bounded = false;
+		capacity = Integer.MAX_VALUE;
+		
+	}
+
+	/*
+	 * Creates a bounded queue which holds at most capacity elements.
+	 */
+	public MyQueue(int capacity) {
+		
+		if(capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		
+		int length = Integer.highestOneBit(capacity);
+		if(length < capacity) {
+			length *= 2;
+		}
+		
+		queue = newArray(length);
+		mask = length - 1;
+		head = 0;
+		size = 0;
+		bounded = true;
+		this.capacity = capacity;
 		
 	}
 
 	/*
 	 * Inserts an item to the end of the queue;
+	 * If the queue is bounded and full, throws IllegalStateException
 	 */
 	public void enqueue(T element) {
 		
-		queue.insertLast(element);
+		if(!offer(element)) {
+			throw new IllegalStateException("Queue is full");
+		}
+		
+	}
+
+	/*
+	 * Inserts an item to the end of the queue if there is room.
+	 * Returns false (and leaves the queue unchanged) if the queue is bounded and full.
+	 */
+	public boolean offer(T element) {
+		
+		if(size == capacity) {
+			return false;
+		}
+		
+		if(size == queue.length) {
+			grow();
+		}
+		
+		queue[(head + size) & mask] = element;
+		size++;
+		return true;
 		
 	}
 
 	/*
 	 * Removes the first item in the queue and returns it.
+	 * If the queue is empty, throws ArrayIndexOutOfBoundsException
 	 */
 	public T dequeue() {
-
-		return queue.delete();
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		T element = queue[head];
+		
+		//Clear the slot so the queue doesn't keep the element alive
+		queue[head] = null;
+		head = (head + 1) & mask;
+		size--;
+		
+		return element;
 		
 	}
-	
+
 	/*
 	 * Returns the string implementation of the queue.
 	 */
 	public String toString() {
 		
-		return queue.toString();
+		return MyWritable.render(this::writeTo, size);
+		
+	}
+
+	/*
+	 * Writes the queue to out from front to back, in the same format as toString.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		if(size == 0) {
+			out.append("empty");
+			return;
+		}
+		
+		out.append(queue[head].toString());
+		
+		for(int i = 1; i < size; i++) {
+			out.append(", ").append(queue[(head + i) & mask].toString());
+		}
 		
 	}
 
@@ -47,26 +142,63 @@ public class MyQueue<T> {
 	 */
 	public boolean hasNext() {
 		
-		return queue.getLength() > 0;
+		return size > 0;
 		
 	}
-	
+
 	/*
 	 * Returns the number of items in the queue.
 	 */
 	public int size() {
 		
-		return queue.getLength();
+		return size;
 		
 	}
-	
+
+	/*
+	 * Returns true if the queue is bounded and has no room left.
+	 */
+	public boolean isFull() {
+		
+		return bounded && size == capacity;
+		
+	}
+
 	/*
 	 * Prints the contents of the queue.
 	 */
 	public void printQueue() {
 		
-		queue.printList();
+		System.out.print(toString() + "\n");
 		
 	}
-	
+
+	/*
+	 * Doubles the array, unrolling the elements so the head is back at index 0.
+	 */
+	private void grow() {
+		
+		if(queue.length == (1 << 30)) {
+			throw new IllegalStateException("Queue is too big to grow");
+		}
+		
+		T[] bigger = newArray(queue.length * 2);
+		
+		for(int i = 0; i < size; i++) {
+			bigger[i] = queue[(head + i) & mask];
+		}
+		
+		queue = bigger;
+		mask = bigger.length - 1;
+		head = 0;
+		
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T[] newArray(int length) {
+		
+		return (T[]) new Object[length];
+		
+	}
+
 }
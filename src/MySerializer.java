@@ -0,0 +1,59 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns objects into bytes and back again, so that structures which live outside the Java heap
+ * (like MyMappedHashTable) can store them. A few serializers for common types are provided.
+ * @author Andrew
+ *
+ * @param <T> The type of object being stored
+ */
+public interface MySerializer<T> {
+	
+	/*
+	 * Returns the bytes which represent the object.
+	 */
+	byte[] toBytes(T object);
+	
+	/*
+	 * Rebuilds an object from bytes made by toBytes.
+	 */
+	T fromBytes(byte[] bytes);
+	
+	MySerializer<String> STRING = new MySerializer<String>() {
+		
+		public byte[] toBytes(String object) {
+			return object.getBytes(StandardCharsets.UTF_8);
+		}
+		
+		public String fromBytes(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+	};
+	
+	MySerializer<Integer> INTEGER = new MySerializer<Integer>() {
+		
+		public byte[] toBytes(Integer object) {
+			return ByteBuffer.allocate(4).putInt(object).array();
+		}
+		
+		public Integer fromBytes(byte[] bytes) {
+			return ByteBuffer.wrap(bytes).getInt();
+		}
+		
+	};
+	
+	MySerializer<Long> LONG = new MySerializer<Long>() {
+		
+		public byte[] toBytes(Long object) {
+			return ByteBuffer.allocate(8).putLong(object).array();
+		}
+		
+		public Long fromBytes(byte[] bytes) {
+			return ByteBuffer.wrap(bytes).getLong();
+		}
+		
+	};
+
+}
@@ -0,0 +1,187 @@
+import java.util.function.Consumer;
+
+/**
+ * A queue for handing elements from exactly one producer thread to exactly one consumer thread
+ * without any locks. It is a fixed size ring buffer like a bounded MyQueue: the producer only ever
+ * writes the tail index and the consumer only ever writes the head index, so neither needs to
+ * compare-and-set. Each index is published with an ordered write after the slot it covers, so the
+ * other thread always sees the element before it sees the index move.
+ * The two indexes are padded onto separate cache lines, and each side keeps its own cached copy
+ * of the other side's index so it only has to read the shared one when the queue looks full (or empty).
+ * Using it from more than one producer or more than one consumer at a time is not safe.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+public class MySpscQueue<T> {
+	
+	private final T[] buffer;
+	private final int mask;
+	
+	//Written by the consumer, read by the producer
+	private final PaddedAtomicLong head = new PaddedAtomicLong(0);
+	
+	//Written by the producer, read by the consumer
+	private final PaddedAtomicLong tail = new PaddedAtomicLong(0);
+	
+	//The producer's last look at head and the consumer's last look at tail. Each is only
+	//touched by one thread, so they are plain longs, but padded like the indexes so the
+	//producer's writes to one don't keep missing the consumer's cache on the other
+	private final PaddedLong headCache = new PaddedLong();
+	private final PaddedLong tailCache = new PaddedLong();
+	
+	/*
+	 * Creates a queue with room for at least capacity elements (rounded up to a power of two).
+	 */
+	@SuppressWarnings("unchecked")
+	public MySpscQueue(int capacity) {
+		
+		if(capacity <= 0 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+		
+		int length = Integer.highestOneBit(capacity);
+		if(length < capacity) {
+			length *= 2;
+		}
+		
+		buffer = (T[]) new Object[length];
+		mask = length - 1;
+		
+	}
+
+	/*
+	 * Adds the element to the end of the queue. Returns false if the queue is full.
+	 * Only call from the producer thread.
+	 */
+	public boolean offer(T element) {
+		
+		if(element == null) {
+			throw new NullPointerException("Queue elements must not be null");
+		}
+		
+		long currentTail = tail.get();
+		
+		if(currentTail - headCache.value >= buffer.length) {
+			
+			//Looks full, check where the consumer really is
+			headCache.value = head.get();
+			if(currentTail - headCache.value >= buffer.length) {
+				return false;
+			}
+			
+		}
+		
+		buffer[(int) currentTail & mask] = element;
+		tail.lazySet(currentTail + 1);
+		return true;
+		
+	}
+
+	/*
+	 * Removes and returns the first element, or returns null if the queue is empty.
+	 * Only call from the consumer thread.
+	 */
+	public T poll() {
+		
+		long currentHead = head.get();
+		
+		if(currentHead >= tailCache.value) {
+			
+			//Looks empty, check where the producer really is
+			tailCache.value = tail.get();
+			if(currentHead >= tailCache.value) {
+				return null;
+			}
+			
+		}
+		
+		int index = (int) currentHead & mask;
+		T element = buffer[index];
+		buffer[index] = null;
+		head.lazySet(currentHead + 1);
+		
+		return element;
+		
+	}
+
+	/*
+	 * Removes up to limit elements and passes each to the action, returns how many were removed.
+	 * The head index is only published once for the whole batch, even if the action throws, in
+	 * which case the element it was given has already been removed.
+	 * Only call from the consumer thread.
+	 */
+	public int drainTo(Consumer<? super T> action, int limit) {
+		
+		long currentHead = head.get();
+		long available = tail.get() - currentHead;
+		int count = (int) Math.min(available, limit);
+		
+		int done = 0;
+		
+		try {
+			
+			while(done < count) {
+				
+				int index = (int) (currentHead + done) & mask;
+				T element = buffer[index];
+				buffer[index] = null;
+				done++;
+				action.accept(element);
+				
+			}
+			
+		} finally {
+			
+			//The slots handed out so far are empty now, so head must move past them
+			head.lazySet(currentHead + done);
+			
+		}
+		
+		return count;
+		
+	}
+
+	/*
+	 * Returns true if the queue contains an element.
+	 */
+	public boolean hasNext() {
+		
+		return size() > 0;
+		
+	}
+
+	/*
+	 * Returns the number of elements in the queue. Only a snapshot if the other thread is busy.
+	 */
+	public int size() {
+		
+		//Read head first so the size can't come out negative
+		long currentHead = head.get();
+		return (int) (tail.get() - currentHead);
+		
+	}
+
+	/*
+	 * Returns the number of elements the queue can hold.
+	 */
+	public int capacity() {
+		
+		return buffer.length;
+		
+	}
+
+	/*
+	 * A plain long followed by enough unused longs to fill a cache line, for state which only
+	 * one thread touches but which sits next to state the other thread writes.
+	 */
+	private static final class PaddedLong {
+		
+		long value;
+		
+		//Never read, just here to take up space
+		long p1, p2, p3, p4, p5, p6, p7;
+		
+	}
+
+}
@@ -1,8 +1,12 @@
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * A stack is a linear data structure that follows the last in first out principle.
- * It has a very simply interface. This implementation uses linked lists but the same
- * can be achieved with arrays with a little more effort. Push and pop are both O(1)
- * time complexity.
+ * It has a very simply interface. This implementation uses an array which doubles in size
+ * whenever it fills up, so pushing doesn't create an object per element and popped slots are
+ * reused by the next push. Push and pop are both O(1) time complexity (push is amortized).
+ * MyIntStack, MyLongStack and MyBooleanStack do the same for primitives without boxing.
  * @author Andrew
  *
  * @param <T>
@@ -10,10 +14,22 @@
 
 public class MyStack<T> {
 	
-	private MyLinkedList<T> stack;
+	private T[] stack;
+	private int size;
 	
 	public MyStack() {
-		stack = new MyLinkedList<T>();
+		this(16);
+	}
+
+	/*
+	 * Creates a stack with room for initialCapacity elements before it needs to grow.
+	 */
+	@SuppressWarnings("unchecked")
+	public MyStack(int initialCapacity) {
+		
+		stack = (T[]) new Object[Math.max(initialCapacity, 1)];
+		size = 0;
+		
 	}
 
 	/*
@@ -21,26 +37,72 @@ public class MyStack<T> {
 	 */
 	public void push(T element) {
 		
-		stack.insert(element);
+		if(size == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+		
+		stack[size++] = element;
 		
 	}
-	
+
 	/*
 	 * Remove an element from the top of the stack.
 	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
 	 */
 	public T pop() {
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		T element = stack[--size];
+		
+		//Clear the slot so the stack doesn't keep the element alive
+		stack[size] = null;
+		
+		return element;
+		
+	}
 
-		return stack.delete();
+	/*
+	 * Returns the element on the top of the stack without removing it.
+	 * If the stack is empty this will throw ArrayIndexOutOfBoundsException
+	 */
+	public T peek() {
+		
+		if(size == 0) {
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+		}
+		
+		return stack[size - 1];
 		
 	}
-	
+
 	/*
 	 * Returns the string implementation of the stack.
 	 */
 	public String toString() {
 		
-		return stack.toString();
+		return MyWritable.render(this::writeTo, size);
+		
+	}
+
+	/*
+	 * Writes the stack to out from the top down, in the same format as toString.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		if(size == 0) {
+			out.append("empty");
+			return;
+		}
+		
+		//List from the top of the stack down
+		out.append(stack[size - 1].toString());
+		
+		for(int i = size - 2; i >= 0; i--) {
+			out.append(", ").append(stack[i].toString());
+		}
 		
 	}
 
@@ -48,8 +110,17 @@ public class MyStack<T> {
 	 * Returns true if there is an item on the stack
 	 */
 	public boolean hasNext() {
+		
+		return size > 0;
+		
+	}
 
-		return stack.getLength() > 0;
+	/*
+	 * Returns the number of items on the stack
+	 */
+	public int size() {
+		
+		return size;
 		
 	}
 
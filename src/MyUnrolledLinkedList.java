@@ -0,0 +1,485 @@
+import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unrolled linked list has the same interface as MyLinkedList, but each node holds a small
+ * array of elements instead of just one. A long list therefore needs far fewer node objects,
+ * the elements of a node sit next to each other in memory, and a scan through the list only
+ * follows a pointer once every block rather than once every element.
+ * When a full node needs another element it is split in two, and when a node drops below half
+ * full it borrows from or merges with the node after it, so every node except the last stays
+ * at least half full. Inserting and deleting inside a node shifts at most nodeCapacity elements,
+ * and finding an index skips a whole node at a time from whichever end is closer.
+ * @author Andrew
+ *
+ * @param <T>
+ */
+public class MyUnrolledLinkedList<T> implements Iterable<T> {
+	
+	private static final int DEFAULT_NODE_CAPACITY = 32;
+	
+	private final int nodeCapacity;
+	private Block<T> head;
+	private Block<T> tail;
+	private int length;
+	private int modCount;
+	
+	public MyUnrolledLinkedList() {
+		
+		this(DEFAULT_NODE_CAPACITY);
+		
+	}
+
+	/*
+	 * Creates a list whose nodes each hold up to nodeCapacity elements.
+	 */
+	public MyUnrolledLinkedList(int nodeCapacity) {
+		
+		if(nodeCapacity < 2) {
+			throw new IllegalArgumentException("Node capacity must be at least 2");
+		}
+		
+		this.nodeCapacity = nodeCapacity;
+		head = null;
+		tail = null;
+		length = 0;
+		
+	}
+
+	/*
+	 * Inserts the given element at the given index.
+	 * If the index is beyond the end of the list it will be inserted at the end.
+	 */
+	public void insert(T element, int index) {
+		
+		if(index >= length || index < 0) {
+			
+			//Need to insert at the end of the list
+			insertLast(element);
+			
+		} else {
+			
+			//Find the node holding index and where in that node it is
+			Block<T> block = head;
+			int offset = index;
+			while(offset >= block.count) {
+				offset -= block.count;
+				block = block.next;
+			}
+			
+			insertInto(block, offset, element);
+			
+		}
+		
+	}
+
+	/*
+	 * Insert the element given at the start of the list
+	 */
+	public void insert(T element) {
+		
+		if(head == null) {
+			insertLast(element);
+		} else {
+			insertInto(head, 0, element);
+		}
+		
+	}
+
+	/*
+	 * Insert the element given at the end of the list
+	 */
+	public void insertLast(T element) {
+		
+		if(tail == null) {
+			
+			head = new Block<T>(nodeCapacity);
+			tail = head;
+			
+		} else if(tail.count == nodeCapacity) {
+			
+			//Start a new node rather than splitting, so appending leaves full nodes behind it
+			Block<T> block = new Block<T>(nodeCapacity);
+			linkAfter(tail, block);
+			
+		}
+		
+		tail.elements[tail.count] = element;
+		tail.count++;
+		length++;
+		modCount++;
+		
+	}
+
+	/*
+	 * Prints out the list using the object's toString method separated by commas
+	 */
+	public void printList() {
+		
+		System.out.print(toString() + "\n");
+		
+	}
+
+	/*
+	 * Represents the list as a string using the T object's toString method separated by commas
+	 */
+	public String toString() {
+		
+		return MyWritable.render(this::writeTo, length);
+		
+	}
+
+	/*
+	 * Writes the list to out in the same format as toString without building the string first.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		
+		if(length == 0) {
+			out.append("empty");
+			return;
+		}
+		
+		String separator = "";
+		
+		for(Block<T> block = head; block != null; block = block.next) {
+			
+			for(int i = 0; i < block.count; i++) {
+				out.append(separator).append(block.elements[i].toString());
+				separator = ", ";
+			}
+			
+		}
+		
+	}
+
+	/*
+	 * Returns the number of elements in the list
+	 */
+	public int getLength() {
+		
+		return length;
+		
+	}
+
+	/*
+	 * Returns the element at the index given.
+	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		
+		checkIndex(index);
+		
+		if(index < length / 2) {
+			
+			Block<T> block = head;
+			while(index >= block.count) {
+				index -= block.count;
+				block = block.next;
+			}
+			
+			return (T) block.elements[index];
+			
+		} else {
+			
+			//Closer to the end, so count back from the tail
+			Block<T> block = tail;
+			int fromEnd = length - 1 - index;
+			while(fromEnd >= block.count) {
+				fromEnd -= block.count;
+				block = block.prev;
+			}
+			
+			return (T) block.elements[block.count - 1 - fromEnd];
+			
+		}
+		
+	}
+
+	/*
+	 * Removes the element at the index given and returns it.
+	 * If element doesn't exist, throws ArrayIndexOutOfBoundsException
+	 */
+	public T delete(int index) {
+		
+		checkIndex(index);
+		
+		Block<T> block = head;
+		while(index >= block.count) {
+			index -= block.count;
+			block = block.next;
+		}
+		
+		return removeFrom(block, index);
+		
+	}
+
+	/*
+	 * Deletes the first element in the list and returns the element.
+	 * If the list is empty, throws ArrayIndexOutOfBoundsException
+	 */
+	public T delete() {
+		
+		checkIndex(0);
+		return removeFrom(head, 0);
+		
+	}
+
+	/*
+	 * Deletes the last element in the list, and returns the element.
+	 * If the list is empty, throws ArrayIndexOutOfBoundsException
+	 */
+	public T deleteLast() {
+		
+		checkIndex(0);
+		return removeFrom(tail, tail.count - 1);
+		
+	}
+
+	/*
+	 * Returns an iterator over the elements from first to last. It is fail-fast and supports remove.
+	 */
+	public Iterator<T> iterator() {
+		
+		return new Itr();
+		
+	}
+
+	private void checkIndex(int index) {
+		
+		if(index >= length || index < 0) {
+			
+			//Element does not exist
+			throw new ArrayIndexOutOfBoundsException("Element at that index does not exist");
+			
+		}
+		
+	}
+
+	/*
+	 * Puts element at offset inside block, splitting the block first if it is full.
+	 */
+	private void insertInto(Block<T> block, int offset, T element) {
+		
+		if(block.count == nodeCapacity) {
+			
+			//Move the back half into a new node after this one
+			Block<T> newBlock = new Block<T>(nodeCapacity);
+			int half = nodeCapacity / 2;
+			int moved = block.count - half;
+			
+			System.arraycopy(block.elements, half, newBlock.elements, 0, moved);
+			for(int i = half; i < block.count; i++) {
+				block.elements[i] = null;
+			}
+			newBlock.count = moved;
+			block.count = half;
+			linkAfter(block, newBlock);
+			
+			if(offset > half) {
+				offset -= half;
+				block = newBlock;
+			}
+			
+		}
+		
+		System.arraycopy(block.elements, offset, block.elements, offset + 1, block.count - offset);
+		block.elements[offset] = element;
+		block.count++;
+		length++;
+		modCount++;
+		
+	}
+
+	/*
+	 * Removes the element at offset inside block, then borrows or merges if the block is now
+	 * less than half full. Returns the removed element.
+	 */
+	@SuppressWarnings("unchecked")
+	private T removeFrom(Block<T> block, int offset) {
+		
+		T element = (T) block.elements[offset];
+		
+		System.arraycopy(block.elements, offset + 1, block.elements, offset, block.count - offset - 1);
+		block.count--;
+		block.elements[block.count] = null;
+		length--;
+		modCount++;
+		
+		rebalance(block);
+		
+		return element;
+		
+	}
+
+	/*
+	 * Keeps block at least half full by taking elements from the node after it, or merging
+	 * the two if they fit in one node. Empty nodes are unlinked.
+	 */
+	private void rebalance(Block<T> block) {
+		
+		int half = nodeCapacity / 2;
+		
+		if(block.count >= half) {
+			return;
+		}
+		
+		Block<T> next = block.next;
+		
+		if(next == null) {
+			
+			//The last node may be less than half full, but not empty
+			if(block.count == 0) {
+				unlink(block);
+			}
+			return;
+			
+		}
+		
+		if(block.count + next.count <= nodeCapacity) {
+			
+			//Both fit in this node, so merge next into it
+			System.arraycopy(next.elements, 0, block.elements, block.count, next.count);
+			block.count += next.count;
+			unlink(next);
+			
+		} else {
+			
+			//Borrow enough from the front of next to bring this node up to half
+			int borrowed = half - block.count;
+			System.arraycopy(next.elements, 0, block.elements, block.count, borrowed);
+			System.arraycopy(next.elements, borrowed, next.elements, 0, next.count - borrowed);
+			for(int i = next.count - borrowed; i < next.count; i++) {
+				next.elements[i] = null;
+			}
+			block.count += borrowed;
+			next.count -= borrowed;
+			
+		}
+		
+	}
+
+	private void linkAfter(Block<T> block, Block<T> newBlock) {
+		
+		newBlock.prev = block;
+		newBlock.next = block.next;
+		
+		if(block.next == null) {
+			tail = newBlock;
+		} else {
+			block.next.prev = newBlock;
+		}
+		
+		block.next = newBlock;
+		
+	}
+
+	private void unlink(Block<T> block) {
+		
+		if(block.prev == null) {
+			head = block.next;
+		} else {
+			block.prev.next = block.next;
+		}
+		
+		if(block.next == null) {
+			tail = block.prev;
+		} else {
+			block.next.prev = block.prev;
+		}
+		
+		block.prev = null;
+		block.next = null;
+		
+	}
+
+	private static final class Block<T> {
+		
+		final Object[] elements;
+		int count;
+		Block<T> prev;
+		Block<T> next;
+		
+		Block(int capacity) {
+			elements = new Object[capacity];
+			count = 0;
+		}
+		
+	}
+
+	private class Itr implements Iterator<T> {
+		
+		//The next element is elements[offset] of block
+		private Block<T> block;
+		private int offset;
+		private int index;
+		private boolean canRemove;
+		private int expectedModCount;
+		
+		Itr() {
+			
+			block = head;
+			offset = 0;
+			index = 0;
+			canRemove = false;
+			expectedModCount = modCount;
+			
+		}
+		
+		public boolean hasNext() {
+			return index < length;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public T next() {
+			
+			checkForChanges();
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			while(offset >= block.count) {
+				block = block.next;
+				offset = 0;
+			}
+			
+			T element = (T) block.elements[offset];
+			offset++;
+			index++;
+			canRemove = true;
+			
+			return element;
+			
+		}
+		
+		public void remove() {
+			
+			checkForChanges();
+			if(!canRemove) {
+				throw new IllegalStateException();
+			}
+			
+			//Rebalancing only ever pulls elements from the following node onto the end of this one,
+			//so the next element stays just where the removed one was
+			offset--;
+			index--;
+			removeFrom(block, offset);
+			
+			canRemove = false;
+			expectedModCount = modCount;
+			
+		}
+		
+		private void checkForChanges() {
+			
+			if(modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			
+		}
+		
+	}
+
+}
@@ -0,0 +1,37 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Anything which can write out its text form a piece at a time to an Appendable, such as the
+ * writeTo methods of the lists, stacks and queues. render runs one of them into a StringBuilder,
+ * which is how their toString methods are built.
+ * @author Andrew
+ *
+ */
+interface MyWritable {
+	
+	/*
+	 * Writes the text to out.
+	 */
+	void writeTo(Appendable out) throws IOException;
+	
+	/*
+	 * Returns what writer writes as a string. elements is about how many elements it will write,
+	 * which is used to guess the size of the buffer so it rarely has to grow.
+	 */
+	static String render(MyWritable writer, int elements) {
+		
+		StringBuilder builder = new StringBuilder(elements * 4 + 8);
+		
+		try {
+			writer.writeTo(builder);
+		} catch (IOException e) {
+			//Appending to a StringBuilder never throws
+			throw new UncheckedIOException(e);
+		}
+		
+		return builder.toString();
+		
+	}
+
+}
@@ -0,0 +1,21 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An AtomicLong followed by enough unused longs to fill a cache line. Two counters which are
+ * written by different threads (like the head and tail of a queue) would otherwise often share
+ * a cache line, and every write by one thread would make the other thread's cache miss
+ * (false sharing).
+ * @author Andrew
+ *
+ */
+@SuppressWarnings("serial")
+class PaddedAtomicLong extends AtomicLong {
+	
+	//Never read, just here to take up space
+	long p1, p2, p3, p4, p5, p6, p7;
+	
+	PaddedAtomicLong(long initialValue) {
+		super(initialValue);
+	}
+
+}